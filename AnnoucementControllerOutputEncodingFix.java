@@ -8,10 +8,11 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import com.offsec.ssd.elearn.model.Course;
+import com.offsec.ssd.elearn.model.CourseSummary;
 import com.offsec.ssd.elearn.model.User;
 import com.offsec.ssd.elearn.service.AnnouncementService;
-import com.offsec.ssd.elearn.repository.CourseRepository;
+import com.offsec.ssd.elearn.repository.CourseOwnershipIndex;
+import com.offsec.ssd.elearn.repository.CourseSummaryRepository;
 import com.offsec.ssd.elearn.repository.UserRepository;
 import com.offsec.ssd.elearn.dto.AnnouncementDTO;
 
@@ -29,7 +30,10 @@ public class AnnouncementController {
     private AnnouncementService announcementService;
 
     @Autowired
-    private CourseRepository courseRepository;
+    private CourseSummaryRepository courseSummaryRepository;
+
+    @Autowired
+    private CourseOwnershipIndex courseOwnershipIndex;
 
     @Autowired
     private UserRepository userRepository;
@@ -37,8 +41,7 @@ public class AnnouncementController {
     private static final Logger logger = LoggerFactory.getLogger(AnnouncementController.class);
 
     private boolean verifyTeacherCourseAccess(Integer userId, Integer courseId) {
-        Course course = courseRepository.getCourseById(courseId);
-        return course != null && course.getOwnerId() == userId;
+        return courseOwnershipIndex.isOwner(courseId, userId);
     }
 
     @GetMapping("/manage")
@@ -53,7 +56,7 @@ public class AnnouncementController {
             redirectAttributes.addFlashAttribute("error", "Invalid user.");
             return "redirect:/login";
         }
-        List<Course> teacherCourses = courseRepository.getAllActiveCoursesByOwnerId(user.getId());
+        List<CourseSummary> teacherCourses = courseSummaryRepository.getActiveCourseSummariesByOwnerId(user.getId());
         List<AnnouncementDTO> activeAnnouncements = announcementService.getAnnouncementsByTeacher(user.getId());
 
         model.addAttribute("courses", teacherCourses);
@@ -0,0 +1,75 @@
+package com.offsec.ssd.elearn.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.offsec.ssd.elearn.model.Course;
+import com.offsec.ssd.elearn.model.CourseRecord;
+
+// Read-through cache for CourseRepository.getCourseById.
+// Entries are immutable CourseRecords handed out as fresh Course copies, because callers mutate the
+// Course they get (edit form, ingestion worker) before passing it to updateCourse.
+@Component
+public class CourseCache {
+
+    // Cached for rows whose image is still inline base64: the row itself is never cached, but the marker
+    // lets a miss (null) mean "no such course" for every thread sharing the load.
+    private static final CourseRecord INLINE_IMAGE = new CourseRecord(0, null, null, null, false, null);
+
+    private final Cache<Integer, CourseRecord> byId;
+
+    public CourseCache(@Value("${app.courseCache.maxSize:5000}") long maxSize,
+                       @Value("${app.courseCache.ttlSeconds:300}") long ttlSeconds) {
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    // Concurrent misses for one id share a single load (Caffeine computes each key at most once at a time).
+    public Course getById(int id, IntFunction<Course> loader) {
+        Course[] loaded = new Course[1];
+        CourseRecord cached = byId.get(id, key -> {
+            Course c = loader.apply(key);
+            if (c == null) {
+                return null;
+            }
+            loaded[0] = c;
+            return CourseRecord.isCacheable(c) ? CourseRecord.from(c) : INLINE_IMAGE;
+        });
+        if (cached == null) {
+            return null;
+        }
+        if (cached == INLINE_IMAGE) {
+            // Only the loading thread holds the row; other callers read it themselves.
+            return loaded[0] != null ? loaded[0] : loader.apply(id);
+        }
+        return cached.toCourse();
+    }
+
+    // Called after every write to a courses row.
+    public void invalidate(int id) {
+        byId.invalidate(id);
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats s = byId.stats();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", byId.estimatedSize());
+        stats.put("hitCount", s.hitCount());
+        stats.put("missCount", s.missCount());
+        stats.put("hitRatio", s.hitRate());
+        stats.put("evictionCount", s.evictionCount());
+        stats.put("averageLoadMillis", s.averageLoadPenalty() / 1_000_000.0);
+        return stats;
+    }
+}
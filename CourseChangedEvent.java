@@ -0,0 +1,5 @@
+package com.offsec.ssd.elearn.event;
+
+// Published after a course is inserted or its name, summary or active flag is updated.
+public record CourseChangedEvent(int id) {
+}
@@ -0,0 +1,81 @@
+package com.offsec.ssd.elearn.model;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+
+import com.offsec.ssd.elearn.repository.CourseColumns;
+
+// The columns of one courses row that actually changed, so an update writes only those
+// instead of rewriting the whole row (image included) for a one-field edit.
+public class CourseChanges {
+
+    public enum Column {
+        NAME("name"),
+        SUMMARY("summary"),
+        IMAGE("image"),
+        ACTIVE(CourseColumns.ACTIVE),
+        OWNER("owner_id");
+
+        private final String columnName;
+
+        Column(String columnName) {
+            this.columnName = columnName;
+        }
+
+        public String getColumnName() {
+            return columnName;
+        }
+    }
+
+    private final int courseId;
+    private final Map<Column, Object> values = new EnumMap<>(Column.class);
+
+    private CourseChanges(int courseId) {
+        this.courseId = courseId;
+    }
+
+    public static CourseChanges forCourse(int courseId) {
+        return new CourseChanges(courseId);
+    }
+
+    // Fields that differ between the course as loaded and as edited.
+    public static CourseChanges between(CourseRecord before, Course after) {
+        CourseChanges changes = new CourseChanges(before.id());
+        changes.changed(Column.NAME, before.name(), after.getName());
+        changes.changed(Column.SUMMARY, before.summary(), after.getSummary());
+        changes.changed(Column.IMAGE, before.image(), after.getImage());
+        changes.changed(Column.ACTIVE, before.active(), after.isActive());
+        changes.changed(Column.OWNER, before.ownerId(), after.getOwnerId());
+        return changes;
+    }
+
+    public CourseChanges image(String image) {
+        values.put(Column.IMAGE, image);
+        return this;
+    }
+
+    public int getCourseId() {
+        return courseId;
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    // Whether course search needs to re-read the course.
+    public boolean changesSearchableText() {
+        return values.containsKey(Column.NAME) || values.containsKey(Column.SUMMARY) || values.containsKey(Column.ACTIVE);
+    }
+
+    public Map<Column, Object> getValues() {
+        return Collections.unmodifiableMap(values);
+    }
+
+    private void changed(Column column, Object before, Object after) {
+        if (!Objects.equals(before, after)) {
+            values.put(column, after);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.offsec.ssd.elearn.repository;
+
+// Course column names that only code added alongside this class relies on. The entity exposes
+// isActive()/setActive(), but CourseRepository, the only code that names the column behind it, is
+// not part of this tree. "is_active" follows the users table's is_teacher/is_student/is_public
+// naming; CourseColumnsCheck verifies it against the live schema at startup, so a mismatch stops the
+// application rather than every course query. Every course list, edit, insert and search query takes
+// the name from here, so a schema that differs is a one-line change.
+public final class CourseColumns {
+
+    public static final String ACTIVE = "is_active";
+
+    private CourseColumns() {
+    }
+}
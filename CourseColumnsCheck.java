@@ -0,0 +1,33 @@
+package com.offsec.ssd.elearn.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+// Fails startup if a CourseColumns name is missing from the courses table, instead of letting every
+// course list, insert, partial update and search query fail at request time against an unexpected schema.
+@Component
+public class CourseColumnsCheck {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseColumnsCheck.class);
+
+    @Autowired
+    JdbcTemplate template;
+
+    @PostConstruct
+    public void check() {
+        try {
+            template.query("SELECT id, " + CourseColumns.ACTIVE + " FROM courses WHERE 1 = 0", rs -> {
+            });
+        } catch (DataAccessException e) {
+            logger.error("courses." + CourseColumns.ACTIVE + " is not readable: " + e.getLocalizedMessage());
+            throw new IllegalStateException("courses table has no column " + CourseColumns.ACTIVE
+                    + "; set CourseColumns.ACTIVE to the column behind Course.isActive()", e);
+        }
+    }
+}
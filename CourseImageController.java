@@ -0,0 +1,232 @@
+package com.offsec.ssd.elearn.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.offsec.ssd.elearn.cache.CourseCache;
+import com.offsec.ssd.elearn.model.Course;
+import com.offsec.ssd.elearn.repository.CourseOwnershipIndex;
+import com.offsec.ssd.elearn.repository.CourseRepository;
+import com.offsec.ssd.elearn.service.CourseImageRenditions;
+import com.offsec.ssd.elearn.service.CourseImageStore;
+import com.offsec.ssd.elearn.service.ImageFormat;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+@Controller
+public class CourseImageController {
+
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // /images/{hash} never changes content, so browsers may keep it for a year without revalidating.
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    // /courses/{id}/image changes when the course image does: always revalidate, usually getting a 304.
+    private static final String REVALIDATE = "private, no-cache";
+
+    @Autowired
+    private CourseImageStore imageStore;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private CourseCache courseCache;
+
+    @Autowired
+    private CourseOwnershipIndex courseOwnershipIndex;
+
+    @Autowired
+    private CourseImageRenditions renditions;
+
+    // Image hashes are unguessable and content is immutable, so no session is required here.
+    // ?w= selects the smallest generated rendition at least that wide, falling back to the original.
+    @GetMapping("/images/{hash}")
+    public void getImage(@PathVariable("hash") String hash,
+                         @RequestParam(value = "w", required = false) Integer width,
+                         HttpServletRequest req, HttpServletResponse res) throws IOException {
+        serveStoredImage(hash, width, IMMUTABLE, req, res);
+    }
+
+    // Image endpoint for courses whose image is not yet in the image store (list views link /images/{hash}
+    // directly once it is), and for callers that only know the course id. Ids are sequential, so the
+    // course must be visible to the caller: its owner sees it always, anyone else only while it is active.
+    // Other courses answer 404, the same as missing ones.
+    @GetMapping("/courses/{id}/image")
+    public void getCourseImage(@PathVariable("id") int id,
+                               @RequestParam(value = "w", required = false) Integer width,
+                               HttpServletRequest req, HttpServletResponse res) throws IOException {
+        HttpSession session = req.getSession(false);
+        if (session == null || !Boolean.TRUE.equals(session.getAttribute("authenticated"))) {
+            res.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+
+        Course course = courseCache.getById(id, courseRepository::getCourseById);
+        if (course == null || !(course.isActive() || courseOwnershipIndex.isOwner(id, (Integer) session.getAttribute("id")))) {
+            res.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String image = course.getImage();
+        if (image == null || image.isEmpty()) {
+            res.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        if (CourseImageStore.isReference(image)) {
+            serveStoredImage(image, width, REVALIDATE, req, res);
+            return;
+        }
+
+        // Not yet migrated to the image store: decode the inline base64 copy.
+        int comma = image.indexOf(',');
+        byte[] bytes = Base64.getMimeDecoder().decode(image.startsWith("data:") && comma >= 0 ? image.substring(comma + 1) : image);
+        res.setHeader("Cache-Control", REVALIDATE);
+        if (new ServletWebRequest(req, res).checkNotModified("\"" + sha256(bytes) + "\"")) {
+            return;
+        }
+        ImageFormat format = ImageFormat.detect(bytes, Math.min(bytes.length, ImageFormat.HEADER_LENGTH));
+        res.setContentType(format != null ? format.getContentType() : "application/octet-stream");
+        res.setContentLength(bytes.length);
+        res.setHeader("X-Content-Type-Options", "nosniff");
+        res.getOutputStream().write(bytes);
+    }
+
+    private void serveStoredImage(String hash, Integer width, String cacheControl,
+                                  HttpServletRequest req, HttpServletResponse res) throws IOException {
+        int renditionWidth = width == null ? 0 : renditions.pick(hash, width);
+        Optional<Path> image = renditionWidth > 0 ? imageStore.locateRendition(hash, renditionWidth) : imageStore.locate(hash);
+        if (image.isEmpty()) {
+            res.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        // The content hash (plus rendition width) identifies the bytes exactly, so it is a strong ETag.
+        String etag = "\"" + hash + (renditionWidth > 0 ? "-w" + renditionWidth : "") + "\"";
+        res.setHeader("Cache-Control", cacheControl);
+        if (new ServletWebRequest(req, res).checkNotModified(etag)) {
+            return;
+        }
+        writeFile(image.get(), etag, req, res);
+    }
+
+    static void writeFile(Path path, String etag, HttpServletRequest req, HttpServletResponse res) throws IOException {
+        long length = Files.size(path);
+        long start = 0;
+        long end = length - 1;
+
+        res.setContentType(contentType(path));
+        res.setHeader("X-Content-Type-Options", "nosniff");
+        res.setHeader("Accept-Ranges", "bytes");
+
+        String range = req.getHeader("Range");
+        String ifRange = req.getHeader("If-Range");
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] bounds = parseRange(range, length);
+            if (bounds == null) {
+                res.setHeader("Content-Range", "bytes */" + length);
+                res.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds[0] != 0 || bounds[1] != length - 1) {
+                start = bounds[0];
+                end = bounds[1];
+                res.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                res.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        long count = end - start + 1;
+        res.setContentLengthLong(count);
+
+        // Let Tomcat hand the file to the kernel (sendfile) when the connector supports it.
+        if (Boolean.TRUE.equals(req.getAttribute(SENDFILE_SUPPORTED))) {
+            req.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            req.setAttribute(SENDFILE_START, start);
+            req.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(res.getOutputStream());
+            long written = 0;
+            while (written < count) {
+                written += file.transferTo(start + written, count - written, out);
+            }
+        }
+    }
+
+    // Single byte range only ("bytes=a-b", "bytes=a-", "bytes=-n"). Malformed or multi-range headers are
+    // ignored and the full file is sent, as RFC 9110 allows; null means the range is unsatisfiable.
+    static long[] parseRange(String header, long length) {
+        long[] full = { 0, length - 1 };
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return full;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return full;
+        }
+        try {
+            String from = spec.substring(0, dash).trim();
+            String to = spec.substring(dash + 1).trim();
+            if (from.isEmpty()) {
+                long suffix = Long.parseLong(to);
+                if (suffix <= 0 || length == 0) {
+                    return null;
+                }
+                return new long[] { Math.max(0, length - suffix), length - 1 };
+            }
+            long start = Long.parseLong(from);
+            long end = to.isEmpty() ? length - 1 : Math.min(Long.parseLong(to), length - 1);
+            if (start >= length || start > end) {
+                return null;
+            }
+            return new long[] { start, end };
+        } catch (NumberFormatException e) {
+            return full;
+        }
+    }
+
+    private static String contentType(Path path) throws IOException {
+        byte[] header = new byte[ImageFormat.HEADER_LENGTH];
+        int read;
+        try (InputStream in = Files.newInputStream(path)) {
+            read = in.readNBytes(header, 0, header.length);
+        }
+        ImageFormat format = ImageFormat.detect(header, read);
+        return format != null ? format.getContentType() : "application/octet-stream";
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
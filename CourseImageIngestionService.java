@@ -0,0 +1,147 @@
+package com.offsec.ssd.elearn.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.offsec.ssd.elearn.model.CourseChanges;
+import com.offsec.ssd.elearn.repository.CourseUpdateRepository;
+
+import jakarta.annotation.PreDestroy;
+
+// Fetches and stores course images off the request thread. Courses are saved first and the image is
+// attached when its job completes; the edit page polls getStatus() until the job is DONE or FAILED.
+// The worker pool and its queue are both bounded: when full, submit() fails fast instead of queueing
+// unbounded remote fetches.
+@Service
+public class CourseImageIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseImageIngestionService.class);
+
+    public enum State { PENDING, DONE, FAILED }
+
+    public record Status(State state, String error, Instant updatedAt) {
+    }
+
+    @Autowired
+    private CourseUpdateRepository courseUpdateRepository;
+
+    @Autowired
+    private ImageFetchCache imageFetchCache;
+
+    @Autowired
+    private CourseImageRenditions renditions;
+
+    private final ThreadPoolExecutor workers;
+
+    // Only the newest submission per course may write its result, so an older, slower fetch can't
+    // overwrite an image the teacher replaced in the meantime.
+    private final Map<Integer, Long> latestJob = new ConcurrentHashMap<>();
+    private final AtomicLong jobIds = new AtomicLong();
+
+    private final Cache<Integer, Status> statuses = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
+
+    public CourseImageIngestionService(@Value("${app.images.workers:4}") int workerCount,
+                                       @Value("${app.images.queueCapacity:100}") int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "course-image-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    public Status submit(int courseId, String imageUrl) {
+        long jobId = jobIds.incrementAndGet();
+        latestJob.put(courseId, jobId);
+        Status pending = new Status(State.PENDING, null, Instant.now());
+        statuses.put(courseId, pending);
+
+        try {
+            workers.execute(() -> ingest(courseId, imageUrl, jobId));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Image ingestion queue full, rejecting image for course " + courseId);
+            return fail(courseId, jobId, "Image processing is busy, please try again shortly");
+        }
+        return pending;
+    }
+
+    public Status getStatus(int courseId) {
+        return statuses.getIfPresent(courseId);
+    }
+
+    private void ingest(int courseId, String imageUrl, long jobId) {
+        try {
+            String imageHash = imageFetchCache.fetch(imageUrl);
+            generateRenditions(imageHash);
+
+            if (!isLatest(courseId, jobId)) {
+                return;
+            }
+            // Only the image column is written, so edits the teacher made meanwhile are never overwritten.
+            if (courseUpdateRepository.updateChangedFields(CourseChanges.forCourse(courseId).image(imageHash)) == 0) {
+                fail(courseId, jobId, "Course no longer exists");
+                return;
+            }
+
+            if (isLatest(courseId, jobId)) {
+                statuses.put(courseId, new Status(State.DONE, null, Instant.now()));
+                latestJob.remove(courseId, jobId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(courseId, jobId, "Image processing was interrupted");
+        } catch (Exception e) {
+            logger.error("Error ingesting image for course " + courseId + ": " + e.getMessage());
+            fail(courseId, jobId, "Error processing image: " + e.getMessage());
+        }
+    }
+
+    // Renditions are an optimisation; views fall back to the original when one is missing.
+    private void generateRenditions(String imageHash) {
+        try {
+            renditions.generate(imageHash);
+        } catch (Exception e) {
+            logger.warn("Could not generate renditions for image " + imageHash + ": " + e.getMessage());
+        }
+    }
+
+    private boolean isLatest(int courseId, long jobId) {
+        Long latest = latestJob.get(courseId);
+        return latest != null && latest == jobId;
+    }
+
+    private Status fail(int courseId, long jobId, String error) {
+        Status failed = new Status(State.FAILED, error, Instant.now());
+        if (isLatest(courseId, jobId)) {
+            statuses.put(courseId, failed);
+            latestJob.remove(courseId, jobId);
+        }
+        return failed;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
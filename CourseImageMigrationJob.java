@@ -0,0 +1,93 @@
+package com.offsec.ssd.elearn.job;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.offsec.ssd.elearn.repository.CourseImageRepository;
+import com.offsec.ssd.elearn.repository.JobCheckpointRepository;
+import com.offsec.ssd.elearn.service.CourseImageRenditions;
+import com.offsec.ssd.elearn.service.CourseImageStore;
+
+// One-off migration of inline base64 course images into CourseImageStore. Runs in id-ordered batches
+// with a checkpoint after each, so it can be stopped and resumed; rows already holding a hash are skipped.
+@Component
+public class CourseImageMigrationJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseImageMigrationJob.class);
+
+    private static final String JOB_NAME = "course-image-migration";
+
+    @Autowired
+    private CourseImageRepository courseImageRepository;
+
+    @Autowired
+    private JobCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private CourseImageStore imageStore;
+
+    @Autowired
+    private CourseImageRenditions renditions;
+
+    @Value("${app.images.migrate:false}")
+    private boolean enabled;
+
+    @Value("${app.images.migrationBatchSize:50}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            Thread t = new Thread(this::run, "course-image-migration");
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    public void run() {
+        int lastId = checkpointRepository.getLastId(JOB_NAME);
+        int migrated = 0;
+        logger.info("Course image migration starting after course id " + lastId);
+
+        while (true) {
+            List<Map.Entry<Integer, String>> batch = courseImageRepository.getImagesAfterId(lastId, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (Map.Entry<Integer, String> row : batch) {
+                String image = row.getValue();
+                if (!image.isEmpty() && !CourseImageStore.isReference(image)) {
+                    try {
+                        String hash = imageStore.store(Base64.getMimeDecoder().decode(stripDataUri(image)));
+                        renditions.generate(hash);
+                        if (courseImageRepository.updateImage(row.getKey(), image, hash)) {
+                            migrated++;
+                        } else {
+                            logger.info("Course " + row.getKey() + " got a new image during migration; left as is");
+                        }
+                    } catch (Exception e) {
+                        logger.error("Could not migrate image for course " + row.getKey() + ": " + e.getMessage());
+                    }
+                }
+                lastId = row.getKey();
+            }
+            checkpointRepository.saveLastId(JOB_NAME, lastId);
+        }
+
+        logger.info("Course image migration finished at course id " + lastId + ", migrated " + migrated + " images");
+    }
+
+    private static String stripDataUri(String image) {
+        int comma = image.indexOf(',');
+        return image.startsWith("data:") && comma >= 0 ? image.substring(comma + 1) : image;
+    }
+}
@@ -0,0 +1,192 @@
+package com.offsec.ssd.elearn.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+// Fixed-width downscaled copies of stored course images, generated once at ingestion so list pages
+// can reference a small file instead of the full-size original.
+@Service
+public class CourseImageRenditions {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseImageRenditions.class);
+
+    // Ascending; pick() relies on the order.
+    public static final int[] WIDTHS = { 64, 256, 1024 };
+
+    @Autowired
+    private CourseImageStore imageStore;
+
+    private final ThreadPoolExecutor workers;
+
+    // Decoding allocates width x height pixels whatever the file size, so a few-KB PNG declaring
+    // 30000x30000 would need gigabytes. Larger images are refused before any pixel is decoded.
+    private final long maxPixels;
+
+    public CourseImageRenditions(@Value("${app.images.renditionWorkers:2}") int workerCount,
+                                 @Value("${app.images.maxPixels:40000000}") long maxPixels) {
+        this.maxPixels = maxPixels;
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Bounded queue and caller-runs: under pressure the ingestion worker scales its own image.
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(workerCount * WIDTHS.length * 4),
+                r -> {
+                    Thread t = new Thread(r, "course-image-rendition-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // Decodes the original once and writes every missing rendition narrower than it, in parallel.
+    // ImageFetchCache hits and migration re-runs usually find every rendition already written; that is
+    // settled from the file system and the image header, without decoding any pixels.
+    public void generate(String hash) throws IOException {
+        if (allRenditionsPresent(hash)) {
+            return;
+        }
+        Path original = imageStore.locate(hash).orElseThrow(() -> new IOException("Image " + hash + " not found"));
+        List<Integer> missing = new ArrayList<>();
+        BufferedImage source = decode(original, hash, missing);
+        if (source == null) {
+            return;
+        }
+        String format = isJpeg(original) ? "jpg" : "png";
+
+        List<CompletableFuture<Void>> jobs = new ArrayList<>();
+        for (int width : missing) {
+            jobs.add(CompletableFuture.runAsync(() -> {
+                try {
+                    imageStore.storeRendition(hash, width, encode(scale(source, width), format));
+                } catch (IOException e) {
+                    logger.error("Could not write " + width + "px rendition of image " + hash + ": " + e.getMessage());
+                }
+            }, workers));
+        }
+        CompletableFuture.allOf(jobs.toArray(new CompletableFuture[0])).join();
+    }
+
+    // Width of the smallest stored rendition at least as wide as requested, or 0 for the original.
+    public int pick(String hash, int requestedWidth) {
+        for (int width : WIDTHS) {
+            if (width >= requestedWidth && imageStore.locateRendition(hash, width).isPresent()) {
+                return width;
+            }
+        }
+        return 0;
+    }
+
+    private boolean allRenditionsPresent(String hash) {
+        for (int width : WIDTHS) {
+            if (imageStore.locateRendition(hash, width).isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Reads the dimensions from the header first, collects into missing the rendition widths narrower
+    // than the original that are not stored yet, and returns null without decoding if there are none.
+    // Images over the pixel budget are rejected; the rest are decoded with subsampling so the raster is
+    // only as large as the widest missing rendition needs.
+    private BufferedImage decode(Path path, String hash, List<Integer> missing) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Image " + path.getFileName() + " could not be decoded");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (width <= 0 || height <= 0 || (long) width * height > maxPixels) {
+                    throw new IOException("Image " + path.getFileName() + " is " + width + "x" + height
+                            + " pixels, more than the " + maxPixels + " pixel limit");
+                }
+
+                int widest = 0;
+                for (int w : WIDTHS) {
+                    if (w < width && imageStore.locateRendition(hash, w).isEmpty()) {
+                        missing.add(w);
+                        widest = w;
+                    }
+                }
+                if (missing.isEmpty()) {
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, width / widest);
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int width) {
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage scaled = new BufferedImage(width, height, type);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return scaled;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, format, out)) {
+            throw new IOException("No ImageIO writer for " + format);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean isJpeg(Path path) throws IOException {
+        byte[] header = new byte[ImageFormat.HEADER_LENGTH];
+        int read;
+        try (InputStream in = Files.newInputStream(path)) {
+            read = in.readNBytes(header, 0, header.length);
+        }
+        return ImageFormat.detect(header, read) == ImageFormat.JPEG;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,45 @@
+package com.offsec.ssd.elearn.repository;
+
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.offsec.ssd.elearn.cache.CourseCache;
+
+// Direct access to courses.image for the image store migration.
+@Repository
+public class CourseImageRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseImageRepository.class);
+
+    @Autowired
+    JdbcTemplate template;
+
+    @Autowired
+    CourseCache courseCache;
+
+    public List<Map.Entry<Integer, String>> getImagesAfterId(int afterId, int limit) {
+        String sql = "SELECT id, image FROM courses WHERE id > ? AND image IS NOT NULL ORDER BY id ASC LIMIT ?";
+        return template.query(sql, (rs, rowNum) -> Map.entry(rs.getInt(1), rs.getString(2)), afterId, limit);
+    }
+
+    // Compare-and-set: the migration runs while the app serves traffic, so the image is only replaced if
+    // it still holds the value that was read. Returns false if the ingestion worker or an edit wrote a
+    // new image in between, which must not be overwritten with the migrated old one.
+    public boolean updateImage(int courseId, String expectedImage, String image) {
+        String sql = "UPDATE courses SET image = ? WHERE id = ? AND image = ?";
+        try {
+            int updated = template.update(sql, image, courseId, expectedImage);
+            courseCache.invalidate(courseId);
+            return updated == 1;
+        } catch(Exception e) {
+            logger.error("Error updating course image in database: " + e.getLocalizedMessage());
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.offsec.ssd.elearn.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Content-addressed image files: each image is written once under the hex SHA-256 of its bytes,
+// fanned out as <dir>/ab/cd/abcd..., and Course.image keeps only that hash.
+// Identical uploads map to the same file, and a stored file never changes.
+@Component
+public class CourseImageStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseImageStore.class);
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path root;
+
+    public CourseImageStore(@Value("${app.images.dir:data/images}") String dir) throws IOException {
+        this.root = Paths.get(dir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+    }
+
+    // True when a Course.image value is a store reference rather than a legacy inline base64 image.
+    public static boolean isReference(String image) {
+        return image != null && HASH.matcher(image).matches();
+    }
+
+    public String store(byte[] bytes) throws IOException {
+        return store(new ByteArrayInputStream(bytes));
+    }
+
+    // Streams to a temp file while hashing, then moves it into place; an existing file means a duplicate.
+    public String store(InputStream in) throws IOException {
+        Path temp = Files.createTempFile(root, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                in.transferTo(out);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+
+            Path target = pathFor(hash);
+            if (Files.exists(target)) {
+                return hash;
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                logger.debug("Image " + hash + " was stored concurrently");
+            }
+            return hash;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public Optional<Path> locate(String hash) {
+        if (!isReference(hash)) {
+            return Optional.empty();
+        }
+        Path path = pathFor(hash);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    // Renditions are derived from the original, so they live next to it keyed by hash and width.
+    public void storeRendition(String hash, int width, byte[] bytes) throws IOException {
+        Path target = renditionPathFor(hash, width);
+        Path temp = Files.createTempFile(target.getParent(), "rendition-", ".tmp");
+        try {
+            Files.write(temp, bytes);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public Optional<Path> locateRendition(String hash, int width) {
+        if (!isReference(hash)) {
+            return Optional.empty();
+        }
+        Path path = renditionPathFor(hash, width);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    private Path renditionPathFor(String hash, int width) {
+        return pathFor(hash).resolveSibling(hash + "-w" + width);
+    }
+
+    private Path pathFor(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.offsec.ssd.elearn.model;
+
+// The searchable text of an active course, as indexed and returned by course search.
+public record CourseListing(int id, String name, String summary) {
+}
@@ -0,0 +1,186 @@
+package com.offsec.ssd.elearn.repository;
+
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+// courseId -> ownerId for every course, held in primitive open-addressing arrays (about 8 bytes per
+// slot, no boxing), so ownership checks are a hash probe instead of loading the course row.
+// Reads are lock-free optimistic reads validated against a StampedLock; writes take the write lock.
+@Component
+public class CourseOwnershipIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseOwnershipIndex.class);
+
+    public static final int UNKNOWN = -1;
+
+    // Course ids come from an identity column and are always positive, so 0 marks an empty slot.
+    private static final int EMPTY = 0;
+
+    @Autowired
+    JdbcTemplate template;
+
+    // Keys and values always travel together: an optimistic reader loads this one field once, so it can
+    // never pair a resized keys array with the old, shorter values array.
+    private record Table(int[] keys, int[] values) {
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private Table table = new Table(new int[1024], new int[1024]);
+    private int size;
+
+    @PostConstruct
+    public void load() {
+        long start = System.nanoTime();
+        template.query("SELECT id, owner_id FROM courses", rs -> {
+            put(rs.getInt(1), rs.getInt(2));
+        });
+        logger.info("Loaded ownership of " + size + " courses in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    // Owner of the course, or UNKNOWN if the course isn't indexed (callers then fall back to the database).
+    public int ownerOf(int courseId) {
+        long stamp = lock.tryOptimisticRead();
+        int owner = find(table, courseId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                owner = find(table, courseId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return owner;
+    }
+
+    // Courses missing from the index (e.g. inserted by another node) are looked up by owner_id alone,
+    // never by loading the whole course row, and remembered.
+    public boolean isOwner(Integer courseId, Integer userId) {
+        if (courseId == null || userId == null) {
+            return false;
+        }
+        int ownerId = ownerOf(courseId);
+        if (ownerId == UNKNOWN) {
+            try {
+                List<Integer> owners = template.queryForList("SELECT owner_id FROM courses WHERE id = ?", Integer.class, courseId);
+                if (owners.isEmpty() || owners.get(0) == null) {
+                    return false;
+                }
+                ownerId = owners.get(0);
+                put(courseId, ownerId);
+            } catch (Exception e) {
+                logger.error("Failed to look up owner of course " + courseId, e);
+                return false;
+            }
+        }
+        return ownerId == userId;
+    }
+
+    // Called after a course is inserted or its owner changes.
+    public void put(int courseId, int ownerId) {
+        if (courseId == EMPTY) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            if ((size + 1) * 2 > table.keys().length) {
+                resize(table.keys().length * 2);
+            }
+            int[] keys = table.keys();
+            int[] values = table.values();
+            int slot = slot(courseId, keys.length);
+            while (keys[slot] != EMPTY && keys[slot] != courseId) {
+                slot = (slot + 1) & (keys.length - 1);
+            }
+            if (keys[slot] == EMPTY) {
+                size++;
+            }
+            keys[slot] = courseId;
+            values[slot] = ownerId;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(int courseId) {
+        long stamp = lock.writeLock();
+        try {
+            int[] keys = table.keys();
+            int[] values = table.values();
+            int mask = keys.length - 1;
+            int slot = slot(courseId, keys.length);
+            while (keys[slot] != courseId) {
+                if (keys[slot] == EMPTY) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            // Backward-shift deletion keeps probe sequences intact without tombstones.
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (keys[next] != EMPTY) {
+                int home = slot(keys[next], keys.length);
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[hole] = EMPTY;
+            size--;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Safe for optimistic readers: both arrays come from one Table and have the same length, so a
+    // concurrent write can only produce a wrong answer (discarded by validate), never an exception.
+    private static int find(Table t, int courseId) {
+        int[] keys = t.keys();
+        int[] values = t.values();
+        int mask = keys.length - 1;
+        int slot = slot(courseId, keys.length);
+        for (int probes = 0; probes < keys.length; probes++) {
+            int key = keys[slot];
+            if (key == courseId) {
+                return values[slot];
+            }
+            if (key == EMPTY) {
+                return UNKNOWN;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return UNKNOWN;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = table.keys();
+        int[] oldValues = table.values();
+        int[] keys = new int[capacity];
+        int[] values = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i], capacity);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+        table = new Table(keys, values);
+    }
+
+    private static int slot(int key, int capacity) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (capacity - 1);
+    }
+}
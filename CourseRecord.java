@@ -0,0 +1,29 @@
+package com.offsec.ssd.elearn.model;
+
+import com.offsec.ssd.elearn.service.CourseImageStore;
+
+// Immutable snapshot of a courses row whose image is an image store reference (a hash, not inline base64).
+public record CourseRecord(int id, String name, String summary, String image, boolean active, Integer ownerId) {
+
+    // Rows still carrying an inline base64 image are not worth caching: the blob would dominate the entry.
+    public static boolean isCacheable(Course c) {
+        return c.getImage() == null || c.getImage().isEmpty() || CourseImageStore.isReference(c.getImage());
+    }
+
+    public static CourseRecord from(Course c) {
+        return new CourseRecord(c.getId(), c.getName(), c.getSummary(), c.getImage(), c.isActive(), c.getOwnerId());
+    }
+
+    public Course toCourse() {
+        Course c = new Course();
+
+        c.setId(id);
+        c.setName(name);
+        c.setSummary(summary);
+        c.setImage(image);
+        c.setActive(active);
+        c.setOwnerId(ownerId);
+
+        return c;
+    }
+}
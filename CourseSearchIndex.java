@@ -0,0 +1,464 @@
+package com.offsec.ssd.elearn.search;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.offsec.ssd.elearn.event.CourseChangedEvent;
+import com.offsec.ssd.elearn.model.CourseListing;
+import com.offsec.ssd.elearn.repository.CourseSearchRepository;
+
+import jakarta.annotation.PreDestroy;
+
+// In-process inverted index over the name and summary of active courses, ranked with BM25.
+// Terms live in a sorted skip list so the last query term can be expanded as a prefix by a range scan;
+// each posting list is a pair of sorted ids and term frequencies, replaced copy-on-write.
+// The index is snapshotted to a file on shutdown and periodically. On restart the snapshot is read
+// into the heap and served at once while a full rebuild from the database runs in the background;
+// until that finishes, hits are re-checked against the database so deactivated courses never show.
+@Component
+public class CourseSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseSearchIndex.class);
+
+    public static final int MAX_RESULTS = 50;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // A name match counts as this many summary matches.
+    private static final int NAME_WEIGHT = 3;
+
+    // Terms a prefix may expand to, and how much a prefix match is worth against an exact one.
+    private static final int MAX_EXPANSIONS = 64;
+    private static final double PREFIX_FACTOR = 0.7;
+
+    private static final int SNAPSHOT_MAGIC = 0x43534931; // "CSI1"
+
+    @Autowired
+    private CourseSearchRepository courseSearchRepository;
+
+    @Value("${app.search.courseSnapshotPath:data/course-search.idx}")
+    private String snapshotPath;
+
+    private record Postings(int[] ids, int[] freqs) {
+    }
+
+    private record Doc(CourseListing listing, String[] terms, int length) {
+    }
+
+    // One complete index; a rebuild fills a new one and swaps it in.
+    private static final class State {
+        final ConcurrentSkipListMap<String, Postings> postings = new ConcurrentSkipListMap<>();
+        final Map<Integer, Doc> docs = new ConcurrentHashMap<>();
+        volatile long totalLength;
+        // Loaded from a snapshot, so it may still contain courses deactivated or edited since it was written.
+        final boolean fromSnapshot;
+
+        State(boolean fromSnapshot) {
+            this.fromSnapshot = fromSnapshot;
+        }
+    }
+
+    private volatile State state = new State(false);
+
+    // Courses changed while a rebuild was reading the table; re-read once the new state is live.
+    private final Set<Integer> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding = false;
+    private volatile boolean dirty = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (loadSnapshot()) {
+            Thread rebuild = new Thread(this::rebuild, "course-search-rebuild");
+            rebuild.setDaemon(true);
+            rebuild.start();
+        } else {
+            rebuild();
+        }
+    }
+
+    public void rebuild() {
+        long start = System.nanoTime();
+        rebuilding = true;
+        changedDuringRebuild.clear();
+        try {
+            State fresh = new State(false);
+            courseSearchRepository.forEachActiveCourse(listing -> index(fresh, listing));
+            synchronized (this) {
+                state = fresh;
+                rebuilding = false;
+            }
+            for (Integer id : changedDuringRebuild) {
+                refresh(id);
+            }
+            changedDuringRebuild.clear();
+            dirty = true;
+            logger.info("Indexed " + fresh.docs.size() + " courses for search in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (Exception e) {
+            rebuilding = false;
+            logger.error("Error rebuilding course search index: " + e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onCourseChanged(CourseChangedEvent event) {
+        if (rebuilding) {
+            changedDuringRebuild.add(event.id());
+        }
+        refresh(event.id());
+    }
+
+    private void refresh(int id) {
+        try {
+            CourseListing listing = courseSearchRepository.findActiveCourse(id).orElse(null);
+            synchronized (this) {
+                if (listing != null) {
+                    index(state, listing);
+                } else {
+                    remove(state, id);
+                }
+            }
+            dirty = true;
+        } catch (Exception e) {
+            logger.error("Error updating course " + id + " in search index: " + e.getMessage());
+        }
+    }
+
+    // Every query term must match; the last one also matches as a prefix, since it may still be being typed.
+    public List<CourseListing> search(String query, int limit) {
+        String[] terms = tokenize(query);
+        if (terms.length == 0) {
+            return List.of();
+        }
+
+        State s = state;
+        int n = s.docs.size();
+        double avgLength = n == 0 ? 1 : Math.max(1.0, (double) s.totalLength / n);
+
+        Map<Integer, Double> scores = null;
+        for (int t = 0; t < terms.length; t++) {
+            Map<Integer, Double> termScores = new HashMap<>();
+            boolean prefix = t == terms.length - 1;
+            NavigableMap<String, Postings> matches = prefix
+                    ? s.postings.subMap(terms[t], true, terms[t] + Character.MAX_VALUE, false)
+                    : s.postings.subMap(terms[t], true, terms[t], true);
+
+            int expansions = 0;
+            for (Map.Entry<String, Postings> match : matches.entrySet()) {
+                if (expansions++ >= MAX_EXPANSIONS) {
+                    break;
+                }
+                Postings p = match.getValue();
+                double idf = Math.log(1 + (n - p.ids().length + 0.5) / (p.ids().length + 0.5));
+                double factor = match.getKey().equals(terms[t]) ? 1.0 : PREFIX_FACTOR;
+                for (int i = 0; i < p.ids().length; i++) {
+                    Doc doc = s.docs.get(p.ids()[i]);
+                    if (doc == null) {
+                        continue;
+                    }
+                    double tf = p.freqs()[i];
+                    double score = factor * idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * doc.length() / avgLength));
+                    termScores.merge(p.ids()[i], score, Double::max);
+                }
+            }
+
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                Map<Integer, Double> both = new HashMap<>();
+                for (Map.Entry<Integer, Double> e : scores.entrySet()) {
+                    Double other = termScores.get(e.getKey());
+                    if (other != null) {
+                        both.put(e.getKey(), e.getValue() + other);
+                    }
+                }
+                scores = both;
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                .thenComparing(e -> s.docs.get(e.getKey()) == null ? "" : s.docs.get(e.getKey()).listing().name(),
+                        Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+
+        int max = Math.min(Math.max(1, Math.min(limit, MAX_RESULTS)), ranked.size());
+        if (s.fromSnapshot) {
+            return currentListings(ranked, max);
+        }
+        List<CourseListing> results = new ArrayList<>(max);
+        for (int i = 0; i < ranked.size() && results.size() < max; i++) {
+            Doc doc = s.docs.get(ranked.get(i).getKey());
+            if (doc != null) {
+                results.add(doc.listing());
+            }
+        }
+        return results;
+    }
+
+    // While serving a snapshot: keep only hits that are still active, with their current text, in one
+    // query. Twice the requested number is checked so a few deactivated courses don't shorten the page.
+    private List<CourseListing> currentListings(List<Map.Entry<Integer, Double>> ranked, int max) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < ranked.size() && ids.size() < max * 2; i++) {
+            ids.add(ranked.get(i).getKey());
+        }
+        Map<Integer, CourseListing> active;
+        try {
+            active = courseSearchRepository.findActiveCourses(ids);
+        } catch (Exception e) {
+            logger.error("Error checking course search hits: " + e.getMessage());
+            return List.of();
+        }
+        List<CourseListing> results = new ArrayList<>(max);
+        for (int i = 0; i < ids.size() && results.size() < max; i++) {
+            CourseListing listing = active.get(ids.get(i));
+            if (listing != null) {
+                results.add(listing);
+            }
+        }
+        return results;
+    }
+
+    private static void index(State s, CourseListing listing) {
+        remove(s, listing.id());
+
+        Map<String, Integer> freqs = new HashMap<>();
+        for (String term : tokenize(listing.name())) {
+            freqs.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : tokenize(listing.summary())) {
+            freqs.merge(term, 1, Integer::sum);
+        }
+        int length = freqs.values().stream().mapToInt(Integer::intValue).sum();
+
+        String[] terms = freqs.keySet().toArray(new String[0]);
+        s.docs.put(listing.id(), new Doc(listing, terms, length));
+        s.totalLength += length;
+        for (Map.Entry<String, Integer> e : freqs.entrySet()) {
+            s.postings.compute(e.getKey(), (k, p) -> insert(p, listing.id(), e.getValue()));
+        }
+    }
+
+    private static void remove(State s, int id) {
+        Doc old = s.docs.remove(id);
+        if (old == null) {
+            return;
+        }
+        s.totalLength -= old.length();
+        for (String term : old.terms()) {
+            s.postings.computeIfPresent(term, (k, p) -> delete(p, id));
+        }
+    }
+
+    private static String[] tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return new String[0];
+        }
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(t -> !t.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    private static Postings insert(Postings p, int id, int freq) {
+        if (p == null) {
+            return new Postings(new int[] { id }, new int[] { freq });
+        }
+        int pos = Arrays.binarySearch(p.ids(), id);
+        if (pos >= 0) {
+            int[] freqs = p.freqs().clone();
+            freqs[pos] = freq;
+            return new Postings(p.ids(), freqs);
+        }
+        int at = -pos - 1;
+        int len = p.ids().length;
+        int[] ids = new int[len + 1];
+        int[] freqs = new int[len + 1];
+        System.arraycopy(p.ids(), 0, ids, 0, at);
+        System.arraycopy(p.freqs(), 0, freqs, 0, at);
+        ids[at] = id;
+        freqs[at] = freq;
+        System.arraycopy(p.ids(), at, ids, at + 1, len - at);
+        System.arraycopy(p.freqs(), at, freqs, at + 1, len - at);
+        return new Postings(ids, freqs);
+    }
+
+    private static Postings delete(Postings p, int id) {
+        int pos = Arrays.binarySearch(p.ids(), id);
+        if (pos < 0) {
+            return p;
+        }
+        int len = p.ids().length;
+        if (len == 1) {
+            return null;
+        }
+        int[] ids = new int[len - 1];
+        int[] freqs = new int[len - 1];
+        System.arraycopy(p.ids(), 0, ids, 0, pos);
+        System.arraycopy(p.freqs(), 0, freqs, 0, pos);
+        System.arraycopy(p.ids(), pos + 1, ids, pos, len - pos - 1);
+        System.arraycopy(p.freqs(), pos + 1, freqs, pos, len - pos - 1);
+        return new Postings(ids, freqs);
+    }
+
+    // Snapshot layout: magic, doc count, then per doc id / length / name / summary / term count / terms,
+    // then term count and per term the term and its ids and frequencies. Strings are length-prefixed UTF-8.
+
+    @Scheduled(fixedDelayString = "${app.search.courseSnapshotIntervalMs:600000}")
+    public void snapshotIfDirty() {
+        if (dirty && !rebuilding) {
+            writeSnapshot();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (dirty && !rebuilding) {
+            writeSnapshot();
+        }
+    }
+
+    private synchronized void writeSnapshot() {
+        if (snapshotPath == null || snapshotPath.isBlank()) {
+            return;
+        }
+        Path target = Paths.get(snapshotPath);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        State s = state;
+        try {
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+            try (OutputStream file = Files.newOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(s.docs.size());
+                for (Doc doc : s.docs.values()) {
+                    out.writeInt(doc.listing().id());
+                    out.writeInt(doc.length());
+                    writeString(out, doc.listing().name());
+                    writeString(out, doc.listing().summary());
+                    out.writeInt(doc.terms().length);
+                    for (String term : doc.terms()) {
+                        writeString(out, term);
+                    }
+                }
+                out.writeInt(s.postings.size());
+                for (Map.Entry<String, Postings> e : s.postings.entrySet()) {
+                    writeString(out, e.getKey());
+                    int[] ids = e.getValue().ids();
+                    out.writeInt(ids.length);
+                    for (int i = 0; i < ids.length; i++) {
+                        out.writeInt(ids[i]);
+                        out.writeInt(e.getValue().freqs()[i]);
+                    }
+                }
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            logger.error("Error writing course search snapshot: " + e.getMessage());
+        }
+    }
+
+    private boolean loadSnapshot() {
+        if (snapshotPath == null || snapshotPath.isBlank()) {
+            return false;
+        }
+        Path path = Paths.get(snapshotPath);
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        // Read into the heap in one go: every doc and posting becomes a heap object anyway, so mapping
+        // the file would save nothing.
+        long start = System.nanoTime();
+        try {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+            if (in.getInt() != SNAPSHOT_MAGIC) {
+                logger.warn("Ignoring course search snapshot with unknown format: " + path);
+                return false;
+            }
+            State loaded = new State(true);
+            int docCount = in.getInt();
+            for (int d = 0; d < docCount; d++) {
+                int id = in.getInt();
+                int length = in.getInt();
+                CourseListing listing = new CourseListing(id, readString(in), readString(in));
+                String[] terms = new String[in.getInt()];
+                for (int t = 0; t < terms.length; t++) {
+                    terms[t] = readString(in);
+                }
+                loaded.docs.put(id, new Doc(listing, terms, length));
+                loaded.totalLength += length;
+            }
+            int termCount = in.getInt();
+            for (int t = 0; t < termCount; t++) {
+                String term = readString(in);
+                int[] ids = new int[in.getInt()];
+                int[] freqs = new int[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = in.getInt();
+                    freqs[i] = in.getInt();
+                }
+                loaded.postings.put(term, new Postings(ids, freqs));
+            }
+            state = loaded;
+            logger.info("Loaded " + docCount + " courses from search snapshot in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not load course search snapshot, rebuilding: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // -1 encodes null.
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,66 @@
+package com.offsec.ssd.elearn.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.offsec.ssd.elearn.model.CourseListing;
+
+// Reads the text CourseSearchIndex indexes; never the image column.
+@Repository
+public class CourseSearchRepository {
+
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private static final RowMapper<CourseListing> LISTING_ROW_MAPPER = (rs, rowNum) ->
+            new CourseListing(rs.getInt(1), rs.getString(2), rs.getString(3));
+
+    @Autowired
+    JdbcTemplate template;
+
+    // Streams rather than materialising the catalog; see UserRepository.forEachUser.
+    @Transactional(readOnly = true)
+    public void forEachActiveCourse(Consumer<CourseListing> action) {
+        String sql = "SELECT id, name, summary FROM courses WHERE " + CourseColumns.ACTIVE + " = TRUE ORDER BY id ASC";
+        template.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> action.accept(LISTING_ROW_MAPPER.mapRow(rs, 0)));
+    }
+
+    // The still-active subset of the given courses, with their current text.
+    public Map<Integer, CourseListing> findActiveCourses(Collection<Integer> ids) {
+        Map<Integer, CourseListing> active = new HashMap<>();
+        if (ids.isEmpty()) {
+            return active;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        String sql = "SELECT id, name, summary FROM courses WHERE id IN (" + placeholders + ") AND " + CourseColumns.ACTIVE + " = TRUE";
+        template.query(sql, (RowCallbackHandler) rs -> {
+            CourseListing listing = LISTING_ROW_MAPPER.mapRow(rs, 0);
+            active.put(listing.id(), listing);
+        }, ids.toArray());
+        return active;
+    }
+
+    // Read from the primary: this runs right after a write to the same row.
+    public Optional<CourseListing> findActiveCourse(int id) {
+        String sql = "SELECT id, name, summary FROM courses WHERE id = ? AND " + CourseColumns.ACTIVE + " = TRUE";
+        List<CourseListing> rows = template.query(sql, LISTING_ROW_MAPPER, id);
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
+    }
+}
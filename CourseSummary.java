@@ -0,0 +1,17 @@
+package com.offsec.ssd.elearn.model;
+
+import com.offsec.ssd.elearn.service.CourseImageStore;
+
+// List-view projection of a course: no summary text and no image bytes. imageHash is set once the
+// image lives in the image store, so list pages can link the immutable /images/{hash} URL and repeat
+// visits are served from the browser cache without a request; rows still carrying inline base64 only
+// report that an image exists and go through /courses/{id}/image.
+public record CourseSummary(int id, String name, boolean active, int ownerId, boolean hasImage, String imageHash) {
+
+    public String imageUrl(int width) {
+        if (imageHash != null && CourseImageStore.isReference(imageHash)) {
+            return "/images/" + imageHash + "?w=" + width;
+        }
+        return hasImage ? "/courses/" + id + "/image?w=" + width : null;
+    }
+}
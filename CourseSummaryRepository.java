@@ -0,0 +1,43 @@
+package com.offsec.ssd.elearn.repository;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.offsec.ssd.elearn.annotation.ReplicaRead;
+import com.offsec.ssd.elearn.model.CourseSummary;
+
+// Course list queries that never read the summary text or image bytes.
+@Repository
+public class CourseSummaryRepository {
+
+    // A stored-image reference is a 64-character (ASCII) hash, while inline base64 images are far longer,
+    // so the column is only returned when it holds a reference. OCTET_LENGTH, unlike LENGTH, counts
+    // bytes rather than characters: PostgreSQL answers it from the TOAST header, without detoasting and
+    // decompressing an inline image, so no image bytes are read for unmigrated rows either.
+    private static final String SUMMARY_COLUMNS = "id, name, " + CourseColumns.ACTIVE + ", owner_id, image IS NOT NULL AS has_image, "
+            + "CASE WHEN OCTET_LENGTH(image) = 64 THEN image END AS image_hash";
+
+    private static final RowMapper<CourseSummary> SUMMARY_ROW_MAPPER = (rs, rowNum) ->
+            new CourseSummary(rs.getInt(1), rs.getString(2), rs.getBoolean(3), rs.getInt(4), rs.getBoolean(5), rs.getString(6));
+
+    @Autowired
+    JdbcTemplate template;
+
+    @ReplicaRead
+    public List<CourseSummary> getCourseSummariesByOwnerId(int ownerId) {
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM courses WHERE owner_id = ? ORDER BY name ASC";
+
+        return template.query(sql, SUMMARY_ROW_MAPPER, ownerId);
+    }
+
+    @ReplicaRead
+    public List<CourseSummary> getActiveCourseSummariesByOwnerId(int ownerId) {
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM courses WHERE owner_id = ? AND " + CourseColumns.ACTIVE + " = TRUE ORDER BY name ASC";
+
+        return template.query(sql, SUMMARY_ROW_MAPPER, ownerId);
+    }
+}
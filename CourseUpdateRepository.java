@@ -0,0 +1,102 @@
+package com.offsec.ssd.elearn.repository;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import com.offsec.ssd.elearn.cache.CourseCache;
+import com.offsec.ssd.elearn.event.CourseChangedEvent;
+import com.offsec.ssd.elearn.model.Course;
+import com.offsec.ssd.elearn.model.CourseChanges;
+
+// Writes to courses rows: inserts that hand back the generated id, and partial updates.
+// Column names come only from constants and CourseChanges.Column, never from input.
+@Repository
+public class CourseUpdateRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseUpdateRepository.class);
+
+    @Autowired
+    JdbcTemplate template;
+
+    @Autowired
+    CourseCache courseCache;
+
+    @Autowired
+    CourseOwnershipIndex courseOwnershipIndex;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    // Returns the new course's id, read from the insert's generated key rather than guessed afterwards,
+    // so concurrent creates by the same teacher can't pick up each other's course.
+    public int insertCourse(Course course) {
+        String sql = "INSERT INTO courses(name, summary, " + CourseColumns.ACTIVE + ", owner_id) VALUES (?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        try {
+            template.update(con -> {
+                PreparedStatement ps = con.prepareStatement(sql, new String[] { "id" });
+                ps.setString(1, course.getName());
+                ps.setString(2, course.getSummary());
+                ps.setBoolean(3, course.isActive());
+                ps.setInt(4, course.getOwnerId());
+                return ps;
+            }, keyHolder);
+        } catch(Exception e) {
+            logger.error("Error inserting course to database: " + e.getLocalizedMessage());
+            throw e;
+        }
+
+        int id = keyHolder.getKey().intValue();
+        course.setId(id);
+        courseOwnershipIndex.put(id, course.getOwnerId());
+        courseCache.invalidate(id);
+        eventPublisher.publishEvent(new CourseChangedEvent(id));
+        return id;
+    }
+
+    // Returns the number of rows updated: 0 if the course doesn't exist or nothing changed.
+    public int updateChangedFields(CourseChanges changes) {
+        if (changes.isEmpty()) {
+            return 0;
+        }
+
+        StringBuilder sql = new StringBuilder("UPDATE courses SET ");
+        List<Object> args = new ArrayList<>();
+        for (Map.Entry<CourseChanges.Column, Object> change : changes.getValues().entrySet()) {
+            if (!args.isEmpty()) {
+                sql.append(", ");
+            }
+            sql.append(change.getKey().getColumnName()).append(" = ?");
+            args.add(change.getValue());
+        }
+        sql.append(" WHERE id = ?");
+        args.add(changes.getCourseId());
+
+        try {
+            int updated = template.update(sql.toString(), args.toArray());
+            courseCache.invalidate(changes.getCourseId());
+            Object owner = changes.getValues().get(CourseChanges.Column.OWNER);
+            if (updated > 0 && owner != null) {
+                courseOwnershipIndex.put(changes.getCourseId(), (Integer) owner);
+            }
+            if (updated > 0 && changes.changesSearchableText()) {
+                eventPublisher.publishEvent(new CourseChangedEvent(changes.getCourseId()));
+            }
+            return updated;
+        } catch(Exception e) {
+            logger.error("Error updating course in database: " + e.getLocalizedMessage());
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.offsec.ssd.elearn.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+// Fetches remote course images straight into CourseImageStore without buffering them in memory.
+// One shared HttpClient keeps connections pooled per host. Every fetch is bounded: connect and header
+// timeouts, an overall deadline for the body, a byte cap enforced while streaming, and global and
+// per-host concurrency limits. The type is taken from the body's magic bytes, never from the URL or
+// the Content-Type header.
+@Component
+public class ImageDownloader {
+
+    private static final int MAX_REDIRECTS = 3;
+
+    // Interrupts downloads that pass their deadline; HttpRequest.timeout only covers the response headers.
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "image-download-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Autowired
+    private CourseImageStore imageStore;
+
+    private final HttpClient client;
+    private final Duration readTimeout;
+    private final Duration downloadTimeout;
+    private final long maxBytes;
+    private final boolean allowPrivateHosts;
+    private final int perHostLimit;
+    private final Semaphore global;
+    private final Cache<String, Semaphore> perHost;
+
+    public ImageDownloader(@Value("${app.images.connectTimeoutMs:5000}") long connectTimeoutMs,
+                           @Value("${app.images.readTimeoutMs:10000}") long readTimeoutMs,
+                           @Value("${app.images.downloadTimeoutMs:30000}") long downloadTimeoutMs,
+                           @Value("${app.images.maxBytes:5242880}") long maxBytes,
+                           @Value("${app.images.maxConcurrentDownloads:8}") int globalLimit,
+                           @Value("${app.images.maxConcurrentPerHost:2}") int perHostLimit,
+                           @Value("${app.images.allowPrivateHosts:false}") boolean allowPrivateHosts) {
+        // Redirects are followed by hand so each hop goes through the same host checks.
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
+        this.downloadTimeout = Duration.ofMillis(downloadTimeoutMs);
+        this.maxBytes = maxBytes;
+        this.allowPrivateHosts = allowPrivateHosts;
+        this.perHostLimit = perHostLimit;
+        this.global = new Semaphore(globalLimit);
+        // One semaphore per host a teacher has submitted, dropped once the host has been idle. A permit is
+        // released at most two readTimeout waits (global, then host) plus downloadTimeout after the
+        // semaphore was looked up, so expiring after twice readTimeout + downloadTimeout without access
+        // never drops one in use. There is deliberately no size bound: evicting by size could.
+        this.perHost = Caffeine.newBuilder()
+                .expireAfterAccess(readTimeout.plus(downloadTimeout).multipliedBy(2))
+                .build();
+    }
+
+    // hash is null when notModified: the validators matched and the caller's stored copy is current.
+    public record Result(String hash, String etag, String lastModified, boolean notModified) {
+    }
+
+    // Returns the CourseImageStore hash of the downloaded image.
+    public String download(String url) throws IOException, InterruptedException {
+        return download(url, null, null).hash();
+    }
+
+    // Conditional download: etag/lastModified come from an earlier Result for the same URL and may be null.
+    public Result download(String url, String etag, String lastModified) throws IOException, InterruptedException {
+        URI uri = checkedUri(URI.create(url.trim()));
+        Semaphore hostLimit = perHost.get(uri.getHost().toLowerCase(Locale.ROOT), h -> new Semaphore(perHostLimit));
+
+        if (!global.tryAcquire(readTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new IOException("Too many image downloads in progress");
+        }
+        try {
+            if (!hostLimit.tryAcquire(readTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new IOException("Too many image downloads from " + uri.getHost());
+            }
+            try {
+                return fetchWithDeadline(uri, etag, lastModified);
+            } finally {
+                hostLimit.release();
+            }
+        } finally {
+            global.release();
+        }
+    }
+
+    // A server that sends headers and then trickles (or stops sending) the body would otherwise hold this
+    // worker and both permits indefinitely. At the deadline the thread is interrupted, which fails the
+    // blocked body read; the interrupt is delivered under the lock, so it can't leak past this method.
+    private Result fetchWithDeadline(URI uri, String etag, String lastModified) throws IOException, InterruptedException {
+        Thread worker = Thread.currentThread();
+        boolean[] state = new boolean[2]; // [0] finished, [1] timed out
+        ScheduledFuture<?> watchdog = WATCHDOG.schedule(() -> {
+            synchronized (state) {
+                if (!state[0]) {
+                    state[1] = true;
+                    worker.interrupt();
+                }
+            }
+        }, downloadTimeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        try {
+            return fetch(uri, etag, lastModified);
+        } catch (IOException | InterruptedException e) {
+            synchronized (state) {
+                if (state[1]) {
+                    throw new IOException("Image download took longer than " + downloadTimeout.toSeconds() + " seconds");
+                }
+            }
+            throw e;
+        } finally {
+            watchdog.cancel(false);
+            synchronized (state) {
+                state[0] = true;
+                if (state[1]) {
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+
+    private Result fetch(URI uri, String etag, String lastModified) throws IOException, InterruptedException {
+        for (int hop = 0; hop <= MAX_REDIRECTS; hop++) {
+            HttpRequest.Builder request = HttpRequest.newBuilder(uri).timeout(readTimeout).GET();
+            if (etag != null) {
+                request.header("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                request.header("If-Modified-Since", lastModified);
+            }
+            HttpResponse<InputStream> response = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+
+            try (InputStream body = response.body()) {
+                int status = response.statusCode();
+                if (status == 304) {
+                    return new Result(null, etag, lastModified, true);
+                }
+                if (status >= 300 && status < 400) {
+                    String location = response.headers().firstValue("Location")
+                            .orElseThrow(() -> new IOException("Redirect without Location"));
+                    uri = checkedUri(uri.resolve(location));
+                    continue;
+                }
+                if (status != 200) {
+                    throw new IOException("Image URL returned HTTP " + status);
+                }
+                long declared = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+                if (declared > maxBytes) {
+                    throw new IOException("Image is larger than " + maxBytes + " bytes");
+                }
+
+                InputStream limited = new LimitedInputStream(body, maxBytes);
+                byte[] header = limited.readNBytes(ImageFormat.HEADER_LENGTH);
+                if (ImageFormat.detect(header, header.length) == null) {
+                    throw new IOException("URL does not point to a JPEG, PNG or GIF image");
+                }
+                String hash = imageStore.store(new SequenceInputStream(new ByteArrayInputStream(header), limited));
+                return new Result(hash,
+                        response.headers().firstValue("ETag").orElse(null),
+                        response.headers().firstValue("Last-Modified").orElse(null),
+                        false);
+            }
+        }
+        throw new IOException("Too many redirects");
+    }
+
+    // Only http(s), and unless explicitly allowed (local testing), no loopback, private, link-local,
+    // unique-local or carrier-grade NAT targets, so course image URLs can't be used to reach internal
+    // services. java.net.http offers no way to connect to a pre-resolved address for https, so the check
+    // relies on the JVM's positive DNS cache (networkaddress.cache.ttl, 30s by default) to hand the
+    // client's connect the same answer vetted here; it must not be set to 0 where this runs.
+    private URI checkedUri(URI uri) throws IOException {
+        String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+        if (!scheme.equals("http") && !scheme.equals("https")) {
+            throw new IOException("Only http and https image URLs are supported");
+        }
+        if (uri.getHost() == null) {
+            throw new IOException("Image URL has no host");
+        }
+        if (!allowPrivateHosts) {
+            for (InetAddress address : InetAddress.getAllByName(uri.getHost())) {
+                if (!isPublic(address)) {
+                    throw new IOException("Image URL points to a non-public address");
+                }
+            }
+        }
+        return uri;
+    }
+
+    static boolean isPublic(InetAddress address) {
+        if (address.isLoopbackAddress() || address.isSiteLocalAddress() || address.isLinkLocalAddress()
+                || address.isAnyLocalAddress() || address.isMulticastAddress()) {
+            return false;
+        }
+        byte[] b = address.getAddress();
+        if (address instanceof Inet4Address) {
+            int first = b[0] & 0xff;
+            int second = b[1] & 0xff;
+            return first != 0                                   // 0.0.0.0/8 "this network"
+                    && !(first == 100 && (second & 0xc0) == 64)  // 100.64.0.0/10 carrier-grade NAT
+                    && !(first == 192 && second == 0 && (b[2] & 0xff) == 0)  // 192.0.0.0/24 IETF assignments
+                    && !(first == 198 && (second & 0xfe) == 18)  // 198.18.0.0/15 benchmarking
+                    && first < 240;                              // 240.0.0.0/4 reserved, broadcast
+        }
+        if (address instanceof Inet6Address) {
+            if ((b[0] & 0xfe) == 0xfc) {                         // fc00::/7 unique local (e.g. fd00:ec2::254)
+                return false;
+            }
+            if (b[0] == 0x00 && b[1] == 0x64 && b[2] == (byte) 0xff && b[3] == (byte) 0x9b) { // 64:ff9b::/96 NAT64
+                try {
+                    return isPublic(InetAddress.getByAddress(new byte[] { b[12], b[13], b[14], b[15] }));
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private final long limit;
+        private long count;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int n) throws IOException {
+            count += n;
+            if (count > limit) {
+                throw new IOException("Image is larger than " + limit + " bytes");
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.offsec.ssd.elearn.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+// Remembers which stored image each remote URL produced, so teachers reusing a stock image URL don't
+// trigger a download per course. Concurrent requests for the same URL share one fetch (single flight).
+// After app.images.urlFreshSeconds an entry is revalidated with If-None-Match / If-Modified-Since,
+// and a 304 keeps the stored image without transferring it again.
+@Component
+public class ImageFetchCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageFetchCache.class);
+
+    private record Entry(String hash, String etag, String lastModified, Instant fetchedAt) {
+    }
+
+    @Autowired
+    private ImageDownloader imageDownloader;
+
+    @Autowired
+    private CourseImageStore imageStore;
+
+    private final Duration freshFor;
+
+    private final Cache<String, Entry> byUrl = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .build();
+
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    public ImageFetchCache(@Value("${app.images.urlFreshSeconds:3600}") long freshSeconds) {
+        this.freshFor = Duration.ofSeconds(freshSeconds);
+    }
+
+    // Returns the CourseImageStore hash for the image at url.
+    public String fetch(String url) throws IOException, InterruptedException {
+        String key = url.trim();
+
+        Entry cached = byUrl.getIfPresent(key);
+        if (cached != null && isFresh(cached) && imageStore.locate(cached.hash()).isPresent()) {
+            return cached.hash();
+        }
+
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            String hash = load(key, cached);
+            mine.complete(hash);
+            return hash;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } catch (InterruptedException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private String load(String url, Entry cached) throws IOException, InterruptedException {
+        boolean canRevalidate = cached != null && imageStore.locate(cached.hash()).isPresent()
+                && (cached.etag() != null || cached.lastModified() != null);
+
+        ImageDownloader.Result result = canRevalidate
+                ? imageDownloader.download(url, cached.etag(), cached.lastModified())
+                : imageDownloader.download(url, null, null);
+
+        if (result.notModified()) {
+            logger.debug("Image URL revalidated, reusing stored image " + cached.hash());
+            byUrl.put(url, new Entry(cached.hash(), cached.etag(), cached.lastModified(), Instant.now()));
+            return cached.hash();
+        }
+        byUrl.put(url, new Entry(result.hash(), result.etag(), result.lastModified(), Instant.now()));
+        return result.hash();
+    }
+
+    private boolean isFresh(Entry entry) {
+        return entry.fetchedAt().plus(freshFor).isAfter(Instant.now());
+    }
+
+    private static String await(CompletableFuture<String> shared) throws IOException, InterruptedException {
+        try {
+            return shared.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException("Image download failed", cause);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.offsec.ssd.elearn.metrics;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+// Measures how long callers wait for a pooled connection.
+public class InstrumentedDataSource extends DelegatingDataSource {
+
+    private final QueryMetrics metrics;
+
+    public InstrumentedDataSource(DataSource target, QueryMetrics metrics) {
+        super(target);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return super.getConnection();
+        } finally {
+            metrics.recordConnectionWait(InstrumentedJdbcTemplate.currentKey(), System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return super.getConnection(username, password);
+        } finally {
+            metrics.recordConnectionWait(InstrumentedJdbcTemplate.currentKey(), System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.offsec.ssd.elearn.metrics;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.support.KeyHolder;
+
+// JdbcTemplate that times every query and update and attributes it to the calling repository method.
+// All query(...)/queryForObject(...)/update(...) overloads funnel into the methods overridden here.
+// RowMapper and RowCallbackHandler variants arrive as a ResultSetExtractor, so rows are counted on the
+// ResultSet itself: each next() that returns true is one row, whatever the extractor does with it.
+// queryForStream(...) is not timed: its statement outlives the call that created it.
+public class InstrumentedJdbcTemplate extends JdbcTemplate {
+
+    private static final ThreadLocal<String> CURRENT_KEY = new ThreadLocal<>();
+
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    private final QueryMetrics metrics;
+
+    public InstrumentedJdbcTemplate(DataSource dataSource, QueryMetrics metrics) {
+        super(dataSource);
+        this.metrics = metrics;
+    }
+
+    // Repository method currently executing a statement on this thread, for connection-wait attribution.
+    static String currentKey() {
+        String key = CURRENT_KEY.get();
+        return key != null ? key : "unattributed";
+    }
+
+    @Override
+    public <T> T query(PreparedStatementCreator psc, PreparedStatementSetter pss, ResultSetExtractor<T> rse) throws DataAccessException {
+        long[] rows = new long[1];
+        return timed(() -> super.query(psc, pss, counting(rse, rows)), rows);
+    }
+
+    @Override
+    public <T> T query(String sql, ResultSetExtractor<T> rse) throws DataAccessException {
+        long[] rows = new long[1];
+        return timed(() -> super.query(sql, counting(rse, rows)), rows);
+    }
+
+    @Override
+    protected int update(PreparedStatementCreator psc, PreparedStatementSetter pss) throws DataAccessException {
+        return updated(() -> super.update(psc, pss));
+    }
+
+    @Override
+    public int update(PreparedStatementCreator psc, KeyHolder generatedKeyHolder) throws DataAccessException {
+        return updated(() -> super.update(psc, generatedKeyHolder));
+    }
+
+    @Override
+    public int update(String sql) throws DataAccessException {
+        return updated(() -> super.update(sql));
+    }
+
+    private int updated(JdbcCall<Integer> call) {
+        long[] rows = new long[1];
+        return timed(() -> {
+            int updated = call.run();
+            rows[0] = updated;
+            return updated;
+        }, rows);
+    }
+
+    // Hands the extractor a ResultSet whose next() counts the rows it returns into rows[0].
+    private static <T> ResultSetExtractor<T> counting(ResultSetExtractor<T> rse, long[] rows) {
+        return rs -> rse.extractData((ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+                    try {
+                        Object result = method.invoke(rs, args);
+                        if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                            rows[0]++;
+                        }
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }));
+    }
+
+    private <T> T timed(JdbcCall<T> call, long[] rows) {
+        String outer = CURRENT_KEY.get();
+        String key = outer != null ? outer : callerKey();
+        CURRENT_KEY.set(key);
+
+        long start = System.nanoTime();
+        boolean error = false;
+        try {
+            return call.run();
+        } catch (RuntimeException e) {
+            error = true;
+            throw e;
+        } finally {
+            if (outer == null) {
+                CURRENT_KEY.remove();
+                metrics.recordQuery(key, System.nanoTime() - start, rows[0], error);
+            }
+        }
+    }
+
+    private static String callerKey() {
+        return WALKER.walk(frames -> frames
+                .filter(f -> f.getClassName().contains(".repository."))
+                .findFirst()
+                .map(f -> f.getClassName().substring(f.getClassName().lastIndexOf('.') + 1) + "." + f.getMethodName())
+                .orElse("unattributed"));
+    }
+
+    @FunctionalInterface
+    private interface JdbcCall<T> {
+        T run();
+    }
+}
@@ -0,0 +1,52 @@
+package com.offsec.ssd.elearn.config;
+
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import com.offsec.ssd.elearn.metrics.InstrumentedDataSource;
+import com.offsec.ssd.elearn.metrics.InstrumentedJdbcTemplate;
+import com.offsec.ssd.elearn.metrics.QueryMetrics;
+
+// Replaces Boot's auto-configured JdbcTemplate, so every repository gets the instrumented one
+// through its existing @Autowired JdbcTemplate field.
+@Configuration
+@EnableScheduling
+public class JdbcInstrumentationConfig {
+
+    // Connection pools are the beans that can make a caller wait, so the timing wrapper replaces those:
+    // the dataSource bean when it is the pool itself, or the primary and replica pools behind
+    // ReadReplicaConfig's routing proxy. Wrapping that lazy proxy instead would time only the handle
+    // it returns immediately. Replacing the beans means the transaction manager, Flyway and the template
+    // all hold the same object: DataSourceUtils finds transaction-bound connections by DataSource
+    // identity and would not see through a wrapper only the template knew.
+    private static final Set<String> POOL_BEAN_NAMES = Set.of("dataSource", "primaryDataSource", "replicaDataSource");
+
+    @Bean
+    public static BeanPostProcessor instrumentedDataSourcePostProcessor(ObjectProvider<QueryMetrics> queryMetrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (POOL_BEAN_NAMES.contains(beanName) && bean instanceof DataSource dataSource
+                        && !(bean instanceof DelegatingDataSource) && !(bean instanceof AbstractRoutingDataSource)) {
+                    return new InstrumentedDataSource(dataSource, queryMetrics.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource, QueryMetrics queryMetrics) {
+        return new InstrumentedJdbcTemplate(dataSource, queryMetrics);
+    }
+}
@@ -0,0 +1,39 @@
+package com.offsec.ssd.elearn.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class JobCheckpointRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobCheckpointRepository.class);
+
+    @Autowired
+    JdbcTemplate template;
+
+    public int getLastId(String jobName) {
+        String sql = "SELECT last_id FROM job_checkpoints WHERE job_name = ?";
+        List<Integer> ids = template.queryForList(sql, Integer.class, jobName);
+        return ids.isEmpty() ? 0 : ids.get(0);
+    }
+
+    public void saveLastId(String jobName, int lastId) {
+        Timestamp now = Timestamp.from(Instant.now());
+        try {
+            int updated = template.update("UPDATE job_checkpoints SET last_id = ?, updated_at = ? WHERE job_name = ?", lastId, now, jobName);
+            if (updated == 0) {
+                template.update("INSERT INTO job_checkpoints(job_name, last_id, updated_at) VALUES (?, ?, ?)", jobName, lastId, now);
+            }
+        } catch(Exception e) {
+            logger.error("Error saving checkpoint for job " + jobName + ": " + e.getLocalizedMessage());
+            throw e;
+        }
+    }
+}
@@ -21,6 +21,7 @@ import org.springframework.web.servlet.support.RequestContextUtils;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import com.offsec.ssd.elearn.annotation.RateLimiter;
+import com.offsec.ssd.elearn.job.PasswordRehashJob;
 import com.offsec.ssd.elearn.model.AccountLockout;
 import com.offsec.ssd.elearn.model.LoginAttempt;
 import com.offsec.ssd.elearn.model.RememberMeToken;
@@ -71,6 +72,12 @@ public class LoginController {
     @Autowired
     private SessionUtil sessionUtil;
 
+    @Autowired
+    private PasswordRehashJob passwordRehashJob;
+
+    @Value("${app.passwordRehash.upgradeOnLogin:false}")
+    private boolean upgradeOnLogin;
+
     @GetMapping("/login")
     public String getLoginPage(HttpServletRequest req, HttpServletResponse res, Model model) {
         // First check if already authenticated via session
@@ -130,6 +137,7 @@ public String postLoginPage(HttpServletRequest req, HttpServletResponse response
     if (CryptoUtil.matchStringWithHash(password, user.getPassword())) {
         // Successful login
         recordSuccessfulAttempt(user.getId(), ipAddress);
+        upgradePasswordHashIfNeeded(user, password);
 
         // Create new session and hydrate it
         req.getSession().invalidate();
@@ -183,6 +191,33 @@ public String postLoginPage(HttpServletRequest req, HttpServletResponse response
     }
 
 
+    // The plaintext is only available here, so accounts flagged by PasswordRehashJob are upgraded on login.
+    // The stored hash is checked in memory first; only weak hashes cost the flag lookup and a new bcrypt.
+    private void upgradePasswordHashIfNeeded(User user, String password) {
+        if (!upgradeOnLogin || !passwordRehashJob.needsRehash(user.getPassword())) {
+            return;
+        }
+        try {
+            if (!userRepo.isPasswordRehashRequired(user.getId())) {
+                return;
+            }
+            String oldHash = user.getPassword();
+            String newHash = CryptoUtil.bcryptHashString(password);
+            if (passwordRehashJob.needsRehash(newHash)) {
+                // Should not happen, since the target is CryptoUtil's own cost; never save a hash that
+                // would be flagged again on the next pass.
+                logger.warn("Not upgrading password hash for userId " + user.getId() + ": new hash is below the target cost");
+                return;
+            }
+            if (userRepo.upgradePasswordHash(user, oldHash, newHash)) {
+                user.setPassword(newHash);
+                logger.info("Upgraded password hash for userId " + user.getId());
+            }
+        } catch (Exception e) {
+            logger.error("Failed to upgrade password hash for userId " + user.getId() + ": " + e.getLocalizedMessage());
+        }
+    }
+
     private void recordSuccessfulAttempt(int userId, String ipAddress) {
         LoginAttempt attempt = new LoginAttempt(userId, Instant.now(), ipAddress, true);
         loginAttemptsRepo.insertLoginAttempt(attempt);
@@ -0,0 +1,183 @@
+package com.offsec.ssd.elearn.job;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.offsec.ssd.elearn.repository.JobCheckpointRepository;
+import com.offsec.ssd.elearn.repository.UserRepository;
+import com.offsec.ssd.elearn.util.CryptoUtil;
+
+import jakarta.annotation.PreDestroy;
+
+// Flags accounts whose bcrypt cost is below the one CryptoUtil currently hashes with, so the hash is
+// upgraded the next time the user logs in (see LoginController). Passwords are never rehashed here:
+// without the plaintext that is impossible. The cost comparison runs inside the UPDATE, so the job
+// only ever reads user ids.
+//
+// Users are walked in id-ordered batches and the last id is checkpointed after each batch, so a
+// restarted pass resumes where it stopped; a completed pass resets the checkpoint so the next one
+// rescans everyone. Each pass is throttled to at most maxBatchesPerSecond (DB budget), and sleeps so
+// that at most cpuFraction of wall time is spent working (CPU budget). Passes run on the job's own
+// thread, since they sleep most of the time and would otherwise hold the shared scheduler thread.
+@Component
+public class PasswordRehashJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordRehashJob.class);
+
+    private static final String JOB_NAME = "password-rehash";
+
+    private static final int UNMEASURED = Integer.MIN_VALUE;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JobCheckpointRepository checkpointRepository;
+
+    @Value("${app.passwordRehash.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.passwordRehash.batchSize:500}")
+    private int batchSize;
+
+    @Value("${app.passwordRehash.maxBatchesPerSecond:2}")
+    private double maxBatchesPerSecond;
+
+    @Value("${app.passwordRehash.cpuFraction:0.1}")
+    private double cpuFraction;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong flagged = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong throttledMillis = new AtomicLong();
+    private volatile int lastId;
+    private volatile int targetCost = UNMEASURED;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "password-rehash-job");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // The cost of a hash CryptoUtil produces, measured once. Aiming at anything else would flag
+    // accounts that an upgrade at login cannot actually strengthen.
+    public int targetCost() {
+        int cost = targetCost;
+        if (cost == UNMEASURED) {
+            cost = bcryptCost(CryptoUtil.bcryptHashString(UUID.randomUUID().toString()));
+            targetCost = cost;
+        }
+        return cost;
+    }
+
+    public boolean needsRehash(String hash) {
+        int cost = bcryptCost(hash);
+        return cost >= 0 && cost < targetCost();
+    }
+
+    @Scheduled(fixedDelayString = "${app.passwordRehash.intervalMs:3600000}", initialDelayString = "${app.passwordRehash.initialDelayMs:60000}")
+    public void runScheduled() {
+        if (enabled && !running.get()) {
+            worker.execute(this::run);
+        }
+    }
+
+    public void run() {
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Password rehash job is already running");
+            return;
+        }
+        try {
+            int cost = targetCost();
+            if (cost < 0) {
+                logger.error("Password rehash job cannot read the bcrypt cost CryptoUtil hashes with; not flagging");
+                return;
+            }
+            lastId = checkpointRepository.getLastId(JOB_NAME);
+            logger.info("Password rehash job starting after user id " + lastId + " with target cost " + cost);
+
+            long minBatchNanos = (long) (1_000_000_000L / maxBatchesPerSecond);
+            while (!Thread.currentThread().isInterrupted()) {
+                long start = System.nanoTime();
+
+                List<Integer> ids = userRepository.getUserIdsAfterId(lastId, batchSize);
+                if (ids.isEmpty()) {
+                    // Pass complete: start from the beginning next time, so accounts scanned before a
+                    // later cost raise are flagged too.
+                    checkpointRepository.saveLastId(JOB_NAME, 0);
+                    logger.info("Password rehash job finished a pass: scanned " + scanned.get() + ", flagged " + flagged.get());
+                    lastId = 0;
+                    break;
+                }
+
+                int upToId = ids.get(ids.size() - 1);
+                int flaggedInBatch = userRepository.flagPasswordRehash(lastId, upToId, cost);
+
+                lastId = upToId;
+                checkpointRepository.saveLastId(JOB_NAME, lastId);
+                scanned.addAndGet(ids.size());
+                flagged.addAndGet(flaggedInBatch);
+                batches.incrementAndGet();
+
+                long workNanos = System.nanoTime() - start;
+                long cpuBudgetSleep = (long) (workNanos * (1 - cpuFraction) / cpuFraction);
+                long sleepNanos = Math.max(cpuBudgetSleep, minBatchNanos - workNanos);
+                if (sleepNanos > 0) {
+                    throttledMillis.addAndGet(sleepNanos / 1_000_000);
+                    Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.info("Password rehash job interrupted at user id " + lastId);
+        } catch (Exception e) {
+            logger.error("Password rehash job failed at user id " + lastId + ": " + e.getLocalizedMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", running.get());
+        stats.put("lastId", lastId);
+        stats.put("scanned", scanned.get());
+        stats.put("flagged", flagged.get());
+        stats.put("targetCost", targetCost == UNMEASURED ? null : targetCost);
+        stats.put("batches", batches.get());
+        stats.put("throttledMillis", throttledMillis.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    // "$2a$10$..." -> 10; -1 for anything that is not a bcrypt hash.
+    private static int bcryptCost(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(3) != '$' || hash.charAt(6) != '$') {
+            return -1;
+        }
+        char tens = hash.charAt(4);
+        char ones = hash.charAt(5);
+        if (!Character.isDigit(tens) || !Character.isDigit(ones)) {
+            return -1;
+        }
+        return (tens - '0') * 10 + (ones - '0');
+    }
+}
@@ -0,0 +1,150 @@
+package com.offsec.ssd.elearn.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Per-statement JDBC metrics, keyed by the repository method that issued the statement.
+// Latencies go into power-of-two microsecond buckets, so recording is a few atomic increments
+// and percentiles are reported as bucket upper bounds.
+@Component
+public class QueryMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryMetrics.class);
+
+    private static final int BUCKETS = 32;
+
+    private final Map<String, StatementStats> statements = new ConcurrentHashMap<>();
+
+    @Value("${app.queryMetrics.topN:5}")
+    private int topN;
+
+    public void recordQuery(String key, long nanos, long rows, boolean error) {
+        StatementStats stats = statements.computeIfAbsent(key, k -> new StatementStats());
+        stats.latency.record(nanos);
+        stats.calls.increment();
+        if (rows > 0) {
+            stats.rows.add(rows);
+        }
+        if (error) {
+            stats.errors.increment();
+        }
+    }
+
+    public void recordConnectionWait(String key, long nanos) {
+        statements.computeIfAbsent(key, k -> new StatementStats()).connectionWait.record(nanos);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        statements.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> result.put(e.getKey(), e.getValue().describe()));
+        return result;
+    }
+
+    public List<Map.Entry<String, Long>> slowest(int n) {
+        List<Map.Entry<String, Long>> byP99 = new ArrayList<>();
+        statements.forEach((key, stats) -> byP99.add(Map.entry(key, stats.latency.percentileMicros(0.99))));
+        byP99.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+        return byP99.subList(0, Math.min(n, byP99.size()));
+    }
+
+    @Scheduled(fixedDelayString = "${app.queryMetrics.logIntervalMs:60000}")
+    public void logSlowest() {
+        List<Map.Entry<String, Long>> slowest = slowest(topN);
+        if (slowest.isEmpty()) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder("Slowest statements by p99:");
+        for (Map.Entry<String, Long> e : slowest) {
+            StatementStats stats = statements.get(e.getKey());
+            sb.append("\n  ").append(e.getKey())
+              .append(" p99<=").append(e.getValue()).append("us")
+              .append(" calls=").append(stats.calls.sum())
+              .append(" errors=").append(stats.errors.sum());
+        }
+        logger.info(sb.toString());
+    }
+
+    private static final class StatementStats {
+        final Histogram latency = new Histogram();
+        final Histogram connectionWait = new Histogram();
+        final LongAdder calls = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder errors = new LongAdder();
+
+        Map<String, Object> describe() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("calls", calls.sum());
+            m.put("errors", errors.sum());
+            m.put("rows", rows.sum());
+            m.put("latency", latency.describe());
+            m.put("connectionWait", connectionWait.describe());
+            return m;
+        }
+    }
+
+    private static final class Histogram {
+        // Bucket i counts samples in [2^(i-1), 2^i) microseconds; bucket 0 is < 1us.
+        final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        final LongAdder totalMicros = new LongAdder();
+        final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            long micros = nanos / 1_000;
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            counts.incrementAndGet(bucket);
+            totalMicros.add(micros);
+            maxMicros.accumulate(micros);
+        }
+
+        long count() {
+            long n = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                n += counts.get(i);
+            }
+            return n;
+        }
+
+        long percentileMicros(double p) {
+            long total = count();
+            if (total == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(total * p);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= target) {
+                    return 1L << i;
+                }
+            }
+            return maxMicros.get();
+        }
+
+        Map<String, Object> describe() {
+            long n = count();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("count", n);
+            m.put("meanMicros", n == 0 ? 0 : totalMicros.sum() / n);
+            m.put("p50Micros", percentileMicros(0.50));
+            m.put("p95Micros", percentileMicros(0.95));
+            m.put("p99Micros", percentileMicros(0.99));
+            m.put("maxMicros", maxMicros.get());
+            return m;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.offsec.ssd.elearn.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import com.offsec.ssd.elearn.cache.CourseCache;
+import com.offsec.ssd.elearn.cache.UserCache;
+import com.offsec.ssd.elearn.job.PasswordRehashJob;
+
+// Actuator endpoint (/actuator/queries) for SQL shapes, timings and cache stats. It is served only on
+// the management port (see application.properties), which is bound to localhost and never proxied,
+// so the public connector cannot reach it whatever the peer address looks like.
+@Component
+@Endpoint(id = "queries")
+public class QueryMetricsEndpoint {
+
+    @Autowired
+    private QueryMetrics queryMetrics;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private CourseCache courseCache;
+
+    @Autowired
+    private PasswordRehashJob passwordRehashJob;
+
+    @ReadOperation
+    public Map<String, Object> queries() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("statements", queryMetrics.snapshot());
+        body.put("userCache", userCache.stats());
+        body.put("courseCache", courseCache.stats());
+        body.put("passwordRehash", passwordRehashJob.stats());
+        return body;
+    }
+}
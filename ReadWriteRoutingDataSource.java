@@ -0,0 +1,31 @@
+package com.offsec.ssd.elearn.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+// Routes connection requests to the primary or the replica pool based on the current thread's route.
+// Must be wrapped in a LazyConnectionDataSourceProxy so the route is read when the first statement
+// runs, not when a transaction begins.
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route { PRIMARY, REPLICA }
+
+    private static final ThreadLocal<Route> CURRENT = new ThreadLocal<>();
+
+    public static Route current() {
+        Route route = CURRENT.get();
+        return route != null ? route : Route.PRIMARY;
+    }
+
+    static void set(Route route) {
+        CURRENT.set(route);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return current();
+    }
+}
@@ -0,0 +1,13 @@
+package com.offsec.ssd.elearn.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks a read-only repository method whose statements may be served by the read replica.
+// Ignored when no replica is configured or when the current user wrote recently.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReplicaRead {
+}
@@ -0,0 +1,74 @@
+package com.offsec.ssd.elearn.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import jakarta.servlet.http.HttpSession;
+
+// Sends @ReplicaRead repository methods to the replica, except for a short window after the
+// current session's own write (read-your-writes), or inside a transaction already using the primary.
+@Aspect
+@Component
+@ConditionalOnProperty(name = "app.datasource.replica.url")
+public class ReplicaReadAspect {
+
+    private static final String LAST_WRITE_ATTRIBUTE = "lastDatabaseWriteAt";
+
+    @Value("${app.datasource.replica.stickinessMs:5000}")
+    private long stickinessMs;
+
+    @Around("@annotation(com.offsec.ssd.elearn.annotation.ReplicaRead)")
+    public Object routeRead(ProceedingJoinPoint pjp) throws Throwable {
+        if (ReadWriteRoutingDataSource.current() == ReadWriteRoutingDataSource.Route.REPLICA
+                || TransactionSynchronizationManager.isActualTransactionActive()
+                || wroteRecently()) {
+            return pjp.proceed();
+        }
+
+        ReadWriteRoutingDataSource.set(ReadWriteRoutingDataSource.Route.REPLICA);
+        try {
+            return pjp.proceed();
+        } finally {
+            ReadWriteRoutingDataSource.clear();
+        }
+    }
+
+    @AfterReturning("execution(* com.offsec.ssd.elearn.repository..*.insert*(..))"
+            + " || execution(* com.offsec.ssd.elearn.repository..*.update*(..))"
+            + " || execution(* com.offsec.ssd.elearn.repository..*.delete*(..))"
+            + " || execution(* com.offsec.ssd.elearn.repository..*.remove*(..))"
+            + " || execution(* com.offsec.ssd.elearn.repository..*.save*(..))")
+    public void recordWrite() {
+        HttpSession session = currentSession();
+        if (session != null) {
+            session.setAttribute(LAST_WRITE_ATTRIBUTE, System.currentTimeMillis());
+        }
+    }
+
+    private boolean wroteRecently() {
+        HttpSession session = currentSession();
+        if (session == null) {
+            return false;
+        }
+        Object lastWrite = session.getAttribute(LAST_WRITE_ATTRIBUTE);
+        return lastWrite instanceof Long at && System.currentTimeMillis() - at < stickinessMs;
+    }
+
+    // Only an existing session is used; reads never create one.
+    private static HttpSession currentSession() {
+        RequestAttributes attrs = RequestContextHolder.getRequestAttributes();
+        if (attrs instanceof ServletRequestAttributes servletAttrs) {
+            return servletAttrs.getRequest().getSession(false);
+        }
+        return null;
+    }
+}
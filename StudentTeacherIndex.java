@@ -0,0 +1,158 @@
+package com.offsec.ssd.elearn.repository;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// In-memory student -> course -> teacher adjacency used for messaging lookups.
+// Each student maps to a sorted int[] of enrolled course ids, and owners come from CourseOwnershipIndex,
+// so teachersOf() costs O(that student's enrollments) no matter how large the enrollments table is.
+// Keeping the course -> owner hop separate means a change of course owner is a single map update
+// instead of a rewrite of every enrolled student's entry.
+// Arrays are copy-on-write: readers never lock and always see a consistent array.
+@Component
+public class StudentTeacherIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(StudentTeacherIndex.class);
+
+    private static final int[] EMPTY = new int[0];
+
+    @Autowired
+    JdbcTemplate template;
+
+    @Autowired
+    CourseOwnershipIndex courseOwnershipIndex;
+
+    // Off until the enrollment write path calls enrollmentAdded/enrollmentRemoved (or refreshStudent);
+    // without those hooks an enrollment made after startup would stay invisible to messaging, so
+    // UserRepository keeps using its SQL join while the index is not loaded.
+    @Value("${app.messagingIndex.enabled:false}")
+    boolean enabled;
+
+    private final Map<Integer, int[]> coursesByStudent = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        Map<Integer, int[]> building = new HashMap<>();
+        Map<Integer, Integer> sizes = new HashMap<>();
+
+        template.query("SELECT student_id, course_id FROM enrollments", rs -> {
+            int studentId = rs.getInt(1);
+            int size = sizes.getOrDefault(studentId, 0);
+            int[] courses = building.get(studentId);
+            if (courses == null) {
+                courses = new int[4];
+            } else if (size == courses.length) {
+                courses = Arrays.copyOf(courses, size * 2);
+            }
+            courses[size] = rs.getInt(2);
+            building.put(studentId, courses);
+            sizes.put(studentId, size + 1);
+        });
+
+        building.forEach((studentId, courses) -> {
+            int[] sorted = Arrays.copyOf(courses, sizes.get(studentId));
+            Arrays.sort(sorted);
+            coursesByStudent.put(studentId, distinct(sorted));
+        });
+
+        loaded = true;
+        logger.info("Loaded messaging index for " + coursesByStudent.size() + " students in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // Distinct owner ids of the courses the student is enrolled in.
+    public int[] teachersOf(int studentId) {
+        int[] courses = coursesByStudent.getOrDefault(studentId, EMPTY);
+        int[] teachers = new int[courses.length];
+        int n = 0;
+        for (int courseId : courses) {
+            int ownerId = courseOwnershipIndex.ownerOf(courseId);
+            if (ownerId != CourseOwnershipIndex.UNKNOWN) {
+                teachers[n++] = ownerId;
+            }
+        }
+        int[] result = Arrays.copyOf(teachers, n);
+        Arrays.sort(result);
+        return distinct(result);
+    }
+
+    // The enrollment write path calls these after its statements succeed; course ownership changes go to
+    // CourseOwnershipIndex, which this index reads through.
+
+    public void enrollmentAdded(int studentId, int courseId) {
+        coursesByStudent.compute(studentId, (k, courses) -> {
+            int[] current = courses == null ? EMPTY : courses;
+            int pos = Arrays.binarySearch(current, courseId);
+            if (pos >= 0) {
+                return current;
+            }
+            int insertAt = -pos - 1;
+            int[] next = new int[current.length + 1];
+            System.arraycopy(current, 0, next, 0, insertAt);
+            next[insertAt] = courseId;
+            System.arraycopy(current, insertAt, next, insertAt + 1, current.length - insertAt);
+            return next;
+        });
+    }
+
+    // Re-reads one student's enrollments, for write paths that change several at once.
+    public void refreshStudent(int studentId) {
+        int[] courses = template.queryForList("SELECT course_id FROM enrollments WHERE student_id = ?", Integer.class, studentId)
+                .stream().mapToInt(Integer::intValue).sorted().toArray();
+        if (courses.length == 0) {
+            coursesByStudent.remove(studentId);
+        } else {
+            coursesByStudent.put(studentId, distinct(courses));
+        }
+    }
+
+    public void enrollmentRemoved(int studentId, int courseId) {
+        coursesByStudent.computeIfPresent(studentId, (k, courses) -> {
+            int pos = Arrays.binarySearch(courses, courseId);
+            if (pos < 0) {
+                return courses;
+            }
+            if (courses.length == 1) {
+                return null;
+            }
+            int[] next = new int[courses.length - 1];
+            System.arraycopy(courses, 0, next, 0, pos);
+            System.arraycopy(courses, pos + 1, next, pos, courses.length - pos - 1);
+            return next;
+        });
+    }
+
+    private static int[] distinct(int[] sorted) {
+        if (sorted.length < 2) {
+            return sorted;
+        }
+        int n = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[n - 1]) {
+                sorted[n++] = sorted[i];
+            }
+        }
+        return n == sorted.length ? sorted : Arrays.copyOf(sorted, n);
+    }
+}
@@ -1,6 +1,8 @@
 package com.offsec.ssd.elearn.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -8,25 +10,61 @@ import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import com.offsec.ssd.elearn.cache.CourseCache;
 import com.offsec.ssd.elearn.dto.CourseDTO;
 import com.offsec.ssd.elearn.model.Course;
+import com.offsec.ssd.elearn.model.CourseChanges;
+import com.offsec.ssd.elearn.model.CourseRecord;
+import com.offsec.ssd.elearn.model.CourseSummary;
+import com.offsec.ssd.elearn.repository.CourseOwnershipIndex;
 import com.offsec.ssd.elearn.repository.CourseRepository;
+import com.offsec.ssd.elearn.repository.CourseSummaryRepository;
+import com.offsec.ssd.elearn.repository.CourseUpdateRepository;
+import com.offsec.ssd.elearn.service.CourseImageIngestionService;
+import com.offsec.ssd.elearn.service.CourseImageStore;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/teacher/courses")
 public class TeacherCourseController {
 
+    // Display widths in CSS pixels of the course list thumbnail and the edit page preview.
+    private static final int LIST_IMAGE_WIDTH = 256;
+    private static final int EDIT_IMAGE_WIDTH = 1024;
+
     @Autowired
     private CourseRepository courseRepository;
 
+    @Autowired
+    private CourseSummaryRepository courseSummaryRepository;
+
+    @Autowired
+    private CourseUpdateRepository courseUpdateRepository;
+
+    @Autowired
+    private CourseImageIngestionService imageIngestionService;
+
+    @Autowired
+    private CourseOwnershipIndex courseOwnershipIndex;
+
+    @Autowired
+    private CourseCache courseCache;
+
     @GetMapping
     public String listCourses(HttpServletRequest req, Model model) {
         Integer teacherId = (Integer) req.getSession(false).getAttribute("id");
-        List<Course> courses = courseRepository.getCoursesByOwnerId(teacherId);
+        List<CourseSummary> courses = courseSummaryRepository.getCourseSummariesByOwnerId(teacherId);
+        Map<Integer, String> imageUrls = new HashMap<>();
+        for (CourseSummary course : courses) {
+            imageUrls.put(course.id(), course.imageUrl(LIST_IMAGE_WIDTH));
+        }
         model.addAttribute("courses", courses);
+        model.addAttribute("imageUrls", imageUrls);
         return "teacher/courses/list";
     }
 
@@ -50,26 +88,26 @@ public class TeacherCourseController {
         }
 
         try {
+            Integer ownerId = (Integer) req.getSession(false).getAttribute("id");
             Course course = new Course();
             course.setName(courseDTO.getName());
             course.setSummary(courseDTO.getSummary());
-
-            // Process image if URL is provided
-            if (courseDTO.getImage() != null && !courseDTO.getImage().trim().isEmpty()) {
-                try {
-                    String base64Image = courseDTO.downloadAndConvertImage();
-                    course.setImage(base64Image);
-                } catch (Exception e) {
-                    bindingResult.addError(new FieldError("courseDTO", "image",
-                            "Error processing image: " + e.getMessage()));
-                    return "teacher/courses/create";
+            course.setActive(courseDTO.isActive());
+            course.setOwnerId(ownerId);
+
+            int courseId = courseUpdateRepository.insertCourse(course);
+
+            // The image, if any, is fetched in the background; the course is usable without it meanwhile.
+            // The edit page polls the image status, so the teacher sees the outcome there.
+            if (hasImageUrl(courseDTO)) {
+                CourseImageIngestionService.Status status = imageIngestionService.submit(courseId, courseDTO.getImage().trim());
+                if (status.state() == CourseImageIngestionService.State.FAILED) {
+                    redirectAttributes.addFlashAttribute("errorMessage", "Course created, but the image could not be processed: " + status.error());
+                } else {
+                    redirectAttributes.addFlashAttribute("successMessage", "Course created successfully, image is being processed");
                 }
+                return "redirect:/teacher/courses/edit/" + courseId;
             }
-
-            course.setActive(courseDTO.isActive());
-            course.setOwnerId((Integer) req.getSession(false).getAttribute("id"));
-
-            courseRepository.insertCourse(course);
             redirectAttributes.addFlashAttribute("successMessage", "Course created successfully");
             return "redirect:/teacher/courses";
         } catch (Exception e) {
@@ -80,10 +118,13 @@ public class TeacherCourseController {
 
     @GetMapping("/edit/{id}")
     public String showEditForm(@PathVariable("id") int id, HttpServletRequest req, Model model) {
-        Course course = courseRepository.getCourseById(id);
         Integer loggedInTeacherId = (Integer) req.getSession(false).getAttribute("id");
+        if (!courseOwnershipIndex.isOwner(id, loggedInTeacherId)) {
+            return "redirect:/teacher/courses?error=unauthorized";
+        }
 
-        if (course == null || !course.getOwnerId().equals(loggedInTeacherId)) {
+        Course course = courseCache.getById(id, courseRepository::getCourseById);
+        if (course == null) {
             return "redirect:/teacher/courses?error=unauthorized";
         }
 
@@ -96,6 +137,7 @@ public class TeacherCourseController {
         model.addAttribute("courseDTO", courseDTO);
         model.addAttribute("courseId", id);
         model.addAttribute("currentImage", course.getImage());
+        model.addAttribute("currentImageUrl", imageUrl(id, course.getImage(), EDIT_IMAGE_WIDTH));
         return "teacher/courses/edit";
     }
 
@@ -108,9 +150,12 @@ public class TeacherCourseController {
             RedirectAttributes redirectAttributes, Model model) {
 
         Integer loggedInTeacherId = (Integer) req.getSession(false).getAttribute("id");
-        Course existingCourse = courseRepository.getCourseById(id);
+        if (!courseOwnershipIndex.isOwner(id, loggedInTeacherId)) {
+            return "redirect:/teacher/courses?error=unauthorized";
+        }
 
-        if (existingCourse == null || !existingCourse.getOwnerId().equals(loggedInTeacherId)) {
+        Course existingCourse = courseCache.getById(id, courseRepository::getCourseById);
+        if (existingCourse == null) {
             return "redirect:/teacher/courses?error=unauthorized";
         }
 
@@ -118,39 +163,73 @@ public class TeacherCourseController {
 
         if (bindingResult.hasErrors()) {
             model.addAttribute("currentImage", existingCourse.getImage());
+            model.addAttribute("currentImageUrl", imageUrl(id, existingCourse.getImage(), EDIT_IMAGE_WIDTH));
             return "teacher/courses/edit";
         }
 
         try {
+            CourseRecord before = CourseRecord.from(existingCourse);
             existingCourse.setName(courseDTO.getName());
             existingCourse.setSummary(courseDTO.getSummary());
+            existingCourse.setActive(courseDTO.isActive());
 
-            // Only update the image if a new URL is provided
-            if (courseDTO.getImage() != null && !courseDTO.getImage().trim().isEmpty()) {
-                try {
-                    String base64Image = courseDTO.downloadAndConvertImage();
-                    existingCourse.setImage(base64Image);
-                } catch (Exception e) {
-                    bindingResult.addError(new FieldError("courseDTO", "image",
-                            "Error processing image: " + e.getMessage()));
-                    model.addAttribute("currentImage", existingCourse.getImage());
-                    return "teacher/courses/edit";
+            // Only the edited columns are written; the existing image is kept until a newly provided
+            // URL has been fetched in the background
+            courseUpdateRepository.updateChangedFields(CourseChanges.between(before, existingCourse));
+
+            if (hasImageUrl(courseDTO)) {
+                CourseImageIngestionService.Status status = imageIngestionService.submit(id, courseDTO.getImage().trim());
+                if (status.state() == CourseImageIngestionService.State.FAILED) {
+                    redirectAttributes.addFlashAttribute("errorMessage", "Course updated, but the image could not be processed: " + status.error());
+                } else {
+                    redirectAttributes.addFlashAttribute("successMessage", "Course updated successfully, image is being processed");
                 }
+                return "redirect:/teacher/courses/edit/" + id;
             }
-            // If no new URL is provided, keep the existing image
-
-            existingCourse.setActive(courseDTO.isActive());
-
-            courseRepository.updateCourse(existingCourse);
             redirectAttributes.addFlashAttribute("successMessage", "Course updated successfully");
             return "redirect:/teacher/courses";
         } catch (Exception e) {
             bindingResult.addError(new FieldError("courseDTO", "name", "Error updating course"));
             model.addAttribute("currentImage", existingCourse.getImage());
+            model.addAttribute("currentImageUrl", imageUrl(id, existingCourse.getImage(), EDIT_IMAGE_WIDTH));
             return "teacher/courses/edit";
         }
     }
 
+    @GetMapping("/edit/{id}/image-status")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getImageStatus(@PathVariable("id") int id, HttpServletRequest req) {
+        Integer loggedInTeacherId = (Integer) req.getSession(false).getAttribute("id");
+        if (!courseOwnershipIndex.isOwner(id, loggedInTeacherId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+
+        CourseImageIngestionService.Status status = imageIngestionService.getStatus(id);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("state", status == null ? "NONE" : status.state().name());
+        if (status != null && status.error() != null) {
+            body.put("error", status.error());
+        }
+        return ResponseEntity.ok(body);
+    }
+
+    // Stored images are served from /images/{hash}, at the smallest rendition covering the display width.
+    // Rows not yet migrated still carry inline base64; they are linked through /courses/{id}/image, which
+    // detects the content type from the bytes and is only fetched when the browser renders the preview.
+    private static String imageUrl(int courseId, String image, int displayWidth) {
+        if (image == null || image.isEmpty()) {
+            return null;
+        }
+        if (CourseImageStore.isReference(image)) {
+            return "/images/" + image + "?w=" + displayWidth;
+        }
+        return "/courses/" + courseId + "/image?w=" + displayWidth;
+    }
+
+    private static boolean hasImageUrl(CourseDTO courseDTO) {
+        return courseDTO.getImage() != null && !courseDTO.getImage().trim().isEmpty();
+    }
+
     private void validateCourseDTO(CourseDTO courseDTO, BindingResult bindingResult) {
         if (!courseDTO.isNameValid()) {
             bindingResult.addError(new FieldError("courseDTO", "name",
@@ -0,0 +1,137 @@
+package com.offsec.ssd.elearn.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.offsec.ssd.elearn.model.User;
+import com.offsec.ssd.elearn.model.UserRecord;
+
+// Read-through cache for UserRepository's single-user lookups.
+// Entries are stored as immutable UserRecords and handed out as fresh User copies, so a caller
+// mutating its User (e.g. before updateUser) can never corrupt the cached value.
+// Rows enter the cache only through Caffeine's compute (byId.get), so an invalidate() racing a load
+// waits for it and then removes the result instead of being overwritten by a row read before the write.
+// Entries carry the password hash, hence the short default TTL: it bounds how long another node can
+// keep accepting a changed password.
+@Component
+public class UserCache {
+
+    private final Cache<Integer, UserRecord> byId;
+
+    // username -> id; usernames never change (updateUser only touches password and email),
+    // so this mapping stays valid and invalidating byId is enough to drop a stale user.
+    private final Cache<String, Integer> idByUsername;
+
+    // Short-lived negative entries so credential stuffing with unknown names doesn't reach the DB every time.
+    private final Cache<String, Boolean> unknownUsernames;
+
+    // Bumped by every invalidate(), so a negative entry computed before an insert can be detected and dropped.
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UserCache(@Value("${app.userCache.maxSize:10000}") long maxSize,
+                     @Value("${app.userCache.ttlSeconds:30}") long ttlSeconds,
+                     @Value("${app.userCache.negativeTtlSeconds:30}") long negativeTtlSeconds) {
+        // Caffeine's eviction policy is W-TinyLFU: a small LRU admission window in front of a
+        // frequency-filtered segmented LRU, so one-off lookups don't flush the hot set.
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.idByUsername = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.unknownUsernames = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(negativeTtlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    public User getById(int id, IntFunction<User> loader) {
+        UserRecord cached = byId.get(id, key -> {
+            User u = loader.apply(key);
+            return u == null ? null : UserRecord.from(u);
+        });
+        return cached == null ? null : cached.toUser();
+    }
+
+    public User getIfPresent(int id) {
+        UserRecord cached = byId.getIfPresent(id);
+        return cached == null ? null : cached.toUser();
+    }
+
+    // Resolves the username to an id (cheap, and stable since usernames never change), then reads the
+    // row through getById so it is loaded under the same compute as id lookups.
+    public User getByUsername(String username, Function<String, Integer> idLoader, IntFunction<User> loader) {
+        if (username == null) {
+            return null;
+        }
+        if (unknownUsernames.getIfPresent(username) != null) {
+            return null;
+        }
+
+        long generation = invalidations.get();
+        Integer id = idByUsername.get(username, idLoader);
+        if (id == null) {
+            unknownUsernames.put(username, Boolean.TRUE);
+            if (invalidations.get() != generation) {
+                unknownUsernames.invalidate(username);
+            }
+            return null;
+        }
+
+        User u = getById(id, loader);
+        if (u == null || !username.equals(u.getUsername())) {
+            idByUsername.invalidate(username);
+            return null;
+        }
+        return u;
+    }
+
+    // Called after every write to the users table. Drops the user under both keys and any negative entry.
+    public void invalidate(User u) {
+        invalidations.incrementAndGet();
+        if (u.getId() > 0) {
+            byId.invalidate(u.getId());
+        }
+        if (u.getUsername() != null) {
+            Integer id = idByUsername.getIfPresent(u.getUsername());
+            if (id != null) {
+                byId.invalidate(id);
+            }
+            idByUsername.invalidate(u.getUsername());
+            unknownUsernames.invalidate(u.getUsername());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("byId", describe(byId.stats(), byId.estimatedSize()));
+        stats.put("idByUsername", describe(idByUsername.stats(), idByUsername.estimatedSize()));
+        stats.put("unknownUsernames", describe(unknownUsernames.stats(), unknownUsernames.estimatedSize()));
+        return stats;
+    }
+
+    private static Map<String, Object> describe(CacheStats s, long size) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("size", size);
+        m.put("hitCount", s.hitCount());
+        m.put("missCount", s.missCount());
+        m.put("hitRatio", s.hitRate());
+        m.put("evictionCount", s.evictionCount());
+        return m;
+    }
+}
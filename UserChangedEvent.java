@@ -0,0 +1,6 @@
+package com.offsec.ssd.elearn.event;
+
+// Published by UserRepository after a users row is inserted or updated.
+// id is 0 for inserts, where the generated key is not read back; listeners resolve by username.
+public record UserChangedEvent(int id, String username) {
+}
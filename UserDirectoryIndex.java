@@ -0,0 +1,276 @@
+package com.offsec.ssd.elearn.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.offsec.ssd.elearn.event.UserChangedEvent;
+import com.offsec.ssd.elearn.model.User;
+import com.offsec.ssd.elearn.model.UserSummary;
+import com.offsec.ssd.elearn.repository.UserRepository;
+
+// In-memory prefix index for "find a teacher or classmate" over first name, last name and username.
+// Only directory-visible users (teachers and public students) are indexed.
+// Tokens live in a sorted skip list, so a prefix query is a range scan over the matching tokens
+// rather than a LIKE '%x%' table scan. Posting lists are sorted int[] replaced copy-on-write.
+@Component
+public class UserDirectoryIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserDirectoryIndex.class);
+
+    public static final int MAX_RESULTS = 50;
+
+    // Upper bound on the prefix matches merged for a query's most selective term. Beyond it the term is
+    // matched exactly, so a one-letter query never merges every posting list under that letter.
+    private static final int MAX_CANDIDATES = 5_000;
+
+    // Shorter terms match whole tokens only.
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final ConcurrentSkipListMap<String, int[]> postings = new ConcurrentSkipListMap<>();
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+    private record Entry(int id, String firstName, String lastName, String[] tokens) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        userRepository.forEachDirectoryUser(this::index);
+        logger.info("Indexed " + entries.size() + " directory users in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        User u = event.id() > 0 ? userRepository.getUserById(event.id()) : userRepository.getUserByUsername(event.username());
+        if (u == null) {
+            return;
+        }
+        if (isDirectoryVisible(u)) {
+            index(u);
+        } else {
+            remove(u.getId());
+        }
+    }
+
+    public List<UserSummary> search(String query, int limit) {
+        String[] terms = tokenize(query);
+        if (terms.length == 0) {
+            return List.of();
+        }
+
+        // Only the most selective term's postings are materialized; the other terms are checked against
+        // each candidate's tokens while scoring. If even that term matches more than MAX_CANDIDATES users
+        // by prefix (a one-letter query, say), it is matched exactly instead: exact matches are the ones
+        // that score highest for it, and its single posting list needs no merge.
+        List<int[]> driver = null;
+        for (String term : terms) {
+            List<int[]> lists = term.length() >= MIN_PREFIX_LENGTH ? postingsWithPrefix(term) : exactPostings(term);
+            if (totalLength(lists) > MAX_CANDIDATES) {
+                lists = exactPostings(term);
+            }
+            if (driver == null || totalLength(lists) < totalLength(driver)) {
+                driver = lists;
+            }
+        }
+        int[] candidates = union(driver);
+
+        // Bounded top-n by score: the weakest kept result is at the head and is evicted first.
+        int n = Math.max(1, Math.min(limit, MAX_RESULTS));
+        Comparator<Scored> ranking = Comparator.comparingInt(Scored::score).reversed()
+                .thenComparing(s -> s.entry().lastName(), Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+                .thenComparing(s -> s.entry().firstName(), Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+        PriorityQueue<Scored> top = new PriorityQueue<>(n + 1, ranking.reversed());
+        for (int id : candidates) {
+            Entry e = entries.get(id);
+            if (e == null) {
+                continue;
+            }
+            int score = score(e, terms);
+            if (score > 0) {
+                top.add(new Scored(e, score));
+                if (top.size() > n) {
+                    top.poll();
+                }
+            }
+        }
+
+        List<Scored> scored = new ArrayList<>(top);
+        scored.sort(ranking);
+        List<UserSummary> results = new ArrayList<>(scored.size());
+        for (Scored s : scored) {
+            results.add(new UserSummary(s.entry().id(), s.entry().firstName(), s.entry().lastName()));
+        }
+        return results;
+    }
+
+    private record Scored(Entry entry, int score) {
+    }
+
+    // Exact token matches outrank prefix matches; matching the last name counts a little extra. Terms
+    // shorter than MIN_PREFIX_LENGTH only match exactly. 0 if any term matches no token.
+    private static int score(Entry e, String[] terms) {
+        String lastName = e.lastName() == null ? "" : e.lastName().toLowerCase(Locale.ROOT);
+        int score = 0;
+        for (String term : terms) {
+            boolean prefix = term.length() >= MIN_PREFIX_LENGTH;
+            int best = 0;
+            for (String token : e.tokens()) {
+                if (token.equals(term)) {
+                    best = Math.max(best, 4);
+                } else if (prefix && token.startsWith(term)) {
+                    best = Math.max(best, 2);
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            if (lastName.startsWith(term)) {
+                best++;
+            }
+            score += best;
+        }
+        return score;
+    }
+
+    private List<int[]> exactPostings(String term) {
+        int[] ids = postings.get(term);
+        return ids == null ? List.of() : List.of(ids);
+    }
+
+    private List<int[]> postingsWithPrefix(String prefix) {
+        NavigableMap<String, int[]> range = postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        return new ArrayList<>(range.values());
+    }
+
+    private static long totalLength(List<int[]> lists) {
+        long total = 0;
+        for (int[] ids : lists) {
+            total += ids.length;
+        }
+        return total;
+    }
+
+    private synchronized void index(User u) {
+        if (!isDirectoryVisible(u)) {
+            return;
+        }
+        remove(u.getId());
+
+        String[] tokens = distinctTokens(u.getFirstName(), u.getLastName(), u.getUsername());
+        entries.put(u.getId(), new Entry(u.getId(), u.getFirstName(), u.getLastName(), tokens));
+        for (String token : tokens) {
+            postings.compute(token, (k, ids) -> insert(ids == null ? new int[0] : ids, u.getId()));
+        }
+    }
+
+    private synchronized void remove(int id) {
+        Entry old = entries.remove(id);
+        if (old == null) {
+            return;
+        }
+        for (String token : old.tokens()) {
+            postings.computeIfPresent(token, (k, ids) -> {
+                int[] next = delete(ids, id);
+                return next.length == 0 ? null : next;
+            });
+        }
+    }
+
+    private static boolean isDirectoryVisible(User u) {
+        return u.isTeacher() || (u.isStudent() && u.isPublic());
+    }
+
+    private static String[] distinctTokens(String... fields) {
+        Map<String, Boolean> seen = new HashMap<>();
+        for (String field : fields) {
+            for (String token : tokenize(field)) {
+                seen.put(token, Boolean.TRUE);
+            }
+        }
+        return seen.keySet().toArray(new String[0]);
+    }
+
+    private static String[] tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return new String[0];
+        }
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(t -> !t.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    private static int[] insert(int[] sorted, int id) {
+        int pos = Arrays.binarySearch(sorted, id);
+        if (pos >= 0) {
+            return sorted;
+        }
+        int at = -pos - 1;
+        int[] next = new int[sorted.length + 1];
+        System.arraycopy(sorted, 0, next, 0, at);
+        next[at] = id;
+        System.arraycopy(sorted, at, next, at + 1, sorted.length - at);
+        return next;
+    }
+
+    private static int[] delete(int[] sorted, int id) {
+        int pos = Arrays.binarySearch(sorted, id);
+        if (pos < 0) {
+            return sorted;
+        }
+        int[] next = new int[sorted.length - 1];
+        System.arraycopy(sorted, 0, next, 0, pos);
+        System.arraycopy(sorted, pos + 1, next, pos, sorted.length - pos - 1);
+        return next;
+    }
+
+    // k-way merge of sorted posting lists into one sorted, distinct array: O(total * log k), each id
+    // copied once, rather than re-copying the accumulated result for every matching token.
+    private static int[] union(List<int[]> lists) {
+        if (lists.isEmpty()) {
+            return new int[0];
+        }
+        if (lists.size() == 1) {
+            return lists.get(0);
+        }
+        // Heap entries are {next id, list index, position in list}.
+        PriorityQueue<int[]> heap = new PriorityQueue<>(lists.size(), Comparator.comparingInt(c -> c[0]));
+        for (int l = 0; l < lists.size(); l++) {
+            if (lists.get(l).length > 0) {
+                heap.add(new int[] { lists.get(l)[0], l, 0 });
+            }
+        }
+        int[] out = new int[(int) Math.min(Integer.MAX_VALUE - 8, totalLength(lists))];
+        int n = 0;
+        while (!heap.isEmpty()) {
+            int[] cursor = heap.poll();
+            if (n == 0 || out[n - 1] != cursor[0]) {
+                out[n++] = cursor[0];
+            }
+            int[] list = lists.get(cursor[1]);
+            if (++cursor[2] < list.length) {
+                cursor[0] = list[cursor[2]];
+                heap.add(cursor);
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+}
@@ -0,0 +1,11 @@
+package com.offsec.ssd.elearn.model;
+
+import java.util.List;
+
+// One page of a directory listing. nextCursor is opaque to callers and null on the last page.
+public record UserPage(List<UserSummary> users, String nextCursor) {
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
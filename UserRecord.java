@@ -0,0 +1,27 @@
+package com.offsec.ssd.elearn.model;
+
+// Immutable snapshot of a users row; safe to share between threads and caches.
+public record UserRecord(int id, String firstName, String lastName, String email, String username,
+        String password, boolean teacher, boolean student, boolean isPublic) {
+
+    public static UserRecord from(User u) {
+        return new UserRecord(u.getId(), u.getFirstName(), u.getLastName(), u.getEmail(), u.getUsername(),
+                u.getPassword(), u.isTeacher(), u.isStudent(), u.isPublic());
+    }
+
+    public User toUser() {
+        User u = new User();
+
+        u.setId(id);
+        u.setFirstName(firstName);
+        u.setLastName(lastName);
+        u.setEmail(email);
+        u.setUsername(username);
+        u.setPassword(password);
+        u.setTeacher(teacher);
+        u.setStudent(student);
+        u.setPublic(isPublic);
+
+        return u;
+    }
+}
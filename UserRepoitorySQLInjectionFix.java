@@ -1,59 +1,166 @@
 package com.offsec.ssd.elearn.repository;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.offsec.ssd.elearn.annotation.ReplicaRead;
+import com.offsec.ssd.elearn.cache.UserCache;
+import com.offsec.ssd.elearn.event.UserChangedEvent;
 import com.offsec.ssd.elearn.model.User;
+import com.offsec.ssd.elearn.model.UserPage;
+import com.offsec.ssd.elearn.model.UserSummary;
 
 @Repository
 public class UserRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(UserRepository.class);
 
+    // Column order is fixed so UserRowMapper can read by ordinal instead of by label.
+    private static final String USER_COLUMNS = "id, first_name, last_name, email_address, username, password, is_teacher, is_student, is_public";
+
+    private static final String SUMMARY_COLUMNS = "id, first_name, last_name";
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    public static final int STREAM_FETCH_SIZE = 500;
+
+    // Keeps IN-lists well below driver and planner parameter limits.
+    private static final int IN_LIST_CHUNK_SIZE = 500;
+
+    private static final char CURSOR_SEPARATOR = '\u0000';
+
+    // Directory pages sort NULL names as empty strings. Databases disagree on where NULLs sort and a
+    // row comparison against NULL is never true, so the key must be NULL-free for the seek to resume
+    // exactly where the previous page ended. V4 indexes the same expressions.
+    private static final String DIRECTORY_SORT_KEY = "COALESCE(last_name, ''), COALESCE(first_name, ''), id";
+
+    // Semi-join rather than JOIN + GROUP BY: each student is emitted once, probing enrollments by
+    // student_id and courses by primary key, without materializing the teacher's enrollment rows.
+    private static final String ROSTER_FILTER = "EXISTS (SELECT 1 FROM enrollments " +
+            " INNER JOIN courses ON enrollments.course_id = courses.id " +
+            " WHERE enrollments.student_id = users.id AND courses.owner_id = ?)";
+
+    private static final RowMapper<User> USER_ROW_MAPPER = new UserRowMapper();
+
+    private static final RowMapper<UserSummary> SUMMARY_ROW_MAPPER = new UserSummaryRowMapper();
+
+    private static final ResultSetExtractor<User> FIRST_USER = rs -> rs.next() ? USER_ROW_MAPPER.mapRow(rs, 0) : null;
+
     @Autowired
     JdbcTemplate template;
 
+    @Autowired
+    UserCache userCache;
+
+    @Autowired
+    StudentTeacherIndex studentTeacherIndex;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
     public User getUserById(int id) {
-        String sql = "SELECT id, first_name, last_name, email_address, username, password, is_teacher, is_student, is_public " +
-                " FROM users WHERE id = ?";
+        return userCache.getById(id, this::loadUserById);
+    }
 
-        try {
-            return template.queryForObject(sql, new UserRowMapper(), id);
-        } catch(EmptyResultDataAccessException e) {
+    public User getUserByUsername(String username) {
+        return userCache.getByUsername(username, this::loadUserIdByUsername, this::loadUserById);
+    }
+
+    public Optional<User> findUserById(int id) {
+        return Optional.ofNullable(getUserById(id));
+    }
+
+    public Optional<User> findUserByUsername(String username) {
+        return Optional.ofNullable(getUserByUsername(username));
+    }
+
+    // Misses are the common case under credential stuffing, so these read at most one row and return
+    // null instead of going through queryForObject and EmptyResultDataAccessException.
+    private User loadUserById(int id) {
+        String sql = "SELECT " + USER_COLUMNS + " FROM users WHERE id = ?";
+        User u = template.query(sql, FIRST_USER, id);
+        if (u == null) {
             logger.debug("getUserById() returned empty results");
         }
+        return u;
+    }
 
-        return null;
+    private Integer loadUserIdByUsername(String username) {
+        String sql = "SELECT id FROM users WHERE username = ?";
+        List<Integer> ids = template.queryForList(sql, Integer.class, username);
+        if (ids.isEmpty()) {
+            logger.debug("getUserByUsername() returned empty results");
+            return null;
+        }
+        return ids.get(0);
     }
 
-    public User getUserByUsername(String username) {
-        String sql = "SELECT id, first_name, last_name, email_address, username, password, is_teacher, is_student, is_public " +
-                " FROM users WHERE username = ?";
+    // Resolves many users with one query per IN_LIST_CHUNK_SIZE ids instead of one query per id.
+    // Cached users are served from UserCache; missing ids are simply absent from the result.
+    // Rows read here are not added to the cache: only UserCache's own loads may populate it, so they
+    // can't race an invalidation.
+    public Map<Integer, User> getUsersByIds(Collection<Integer> ids) {
+        Map<Integer, User> users = new HashMap<>();
+        List<Integer> misses = new ArrayList<>();
+
+        for (Integer id : new LinkedHashSet<>(ids)) {
+            User cached = userCache.getIfPresent(id);
+            if (cached != null) {
+                users.put(id, cached);
+            } else {
+                misses.add(id);
+            }
+        }
 
-        try {
-            return template.queryForObject(sql, new UserRowMapper(), username);
-        } catch(EmptyResultDataAccessException e) {
-            logger.debug("getUserByUsername() returned empty results");
+        for (int from = 0; from < misses.size(); from += IN_LIST_CHUNK_SIZE) {
+            List<Integer> chunk = misses.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, misses.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            String sql = "SELECT " + USER_COLUMNS + " FROM users WHERE id IN (" + placeholders + ")";
+
+            template.query(sql, (RowCallbackHandler) rs -> {
+                User u = USER_ROW_MAPPER.mapRow(rs, 0);
+                users.put(u.getId(), u);
+            }, chunk.toArray());
         }
 
-        return null;
+        return users;
     }
 
+    @ReplicaRead
     public List<User> getAllTeachers() {
-        String sql = "SELECT * FROM users WHERE is_teacher = TRUE ORDER BY last_name ASC, first_name ASC";
+        String sql = "SELECT " + USER_COLUMNS + " FROM users WHERE is_teacher = TRUE ORDER BY last_name ASC, first_name ASC";
 
         try {
-            return template.query(sql, new UserRowMapper());
+            return template.query(sql, USER_ROW_MAPPER);
         } catch(EmptyResultDataAccessException e) {
             logger.debug("getAllTeachers() returned empty results");
         }
@@ -61,11 +168,12 @@ public class UserRepository {
         return null;
     }
 
+    @ReplicaRead
     public List<User> getPublicStudents() {
-        String sql = "SELECT * FROM users WHERE is_student = TRUE AND is_public = TRUE ORDER BY last_name ASC, first_name ASC";
+        String sql = "SELECT " + USER_COLUMNS + " FROM users WHERE is_student = TRUE AND is_public = TRUE ORDER BY last_name ASC, first_name ASC";
 
         try {
-            return template.query(sql, new UserRowMapper());
+            return template.query(sql, USER_ROW_MAPPER);
         } catch(EmptyResultDataAccessException e) {
             logger.debug("getPublicStudents() returned empty results");
         }
@@ -75,6 +183,17 @@ public class UserRepository {
 
 
     public List<User> getAvailableTeachersForMessaging(int studentId) {
+        if (studentTeacherIndex.isLoaded()) {
+            List<Integer> teacherIds = new ArrayList<>();
+            for (int teacherId : studentTeacherIndex.teachersOf(studentId)) {
+                teacherIds.add(teacherId);
+            }
+            List<User> teachers = new ArrayList<>(getUsersByIds(teacherIds).values());
+            // Same order as the SQL fallback, where NULL names sort last.
+            teachers.sort(Comparator.comparing(User::getLastName, Comparator.nullsLast(Comparator.<String>naturalOrder()))
+                    .thenComparing(User::getFirstName, Comparator.nullsLast(Comparator.<String>naturalOrder())));
+            return teachers;
+        }
 
         String sql = "SELECT teachers.id, teachers.first_name, teachers.last_name, teachers.email_address, teachers.username, teachers.password, teachers.is_teacher, teachers.is_student, teachers.is_public " +
                 " FROM users AS students " +
@@ -86,7 +205,7 @@ public class UserRepository {
                 " ORDER BY teachers.last_name ASC, teachers.first_name ASC";
 
         try {
-            return template.query(sql, new UserRowMapper(), studentId);
+            return template.query(sql, USER_ROW_MAPPER, studentId);
         } catch(EmptyResultDataAccessException e) {
             logger.debug("getAvailableTeachersForMessaging() returned empty results");
         }
@@ -94,11 +213,168 @@ public class UserRepository {
         return null;
     }
 
+    // Bulk jobs (exports, reindexing, rehashing) iterate users through these instead of the List methods.
+    // Rows are read through a forward-only, read-only cursor with a bounded fetch size, so memory stays
+    // constant in the table size. PostgreSQL only honours the fetch size inside a transaction, hence
+    // @Transactional; MySQL additionally needs useCursorFetch=true on the JDBC URL.
+    @Transactional(readOnly = true)
+    public void forEachUser(Consumer<User> action) {
+        String sql = "SELECT " + USER_COLUMNS + " FROM users ORDER BY id ASC";
+        template.query(streamingStatement(sql), (RowCallbackHandler) rs -> action.accept(USER_ROW_MAPPER.mapRow(rs, 0)));
+    }
+
+    // Teachers and public students only: the users that may appear in directory search.
+    @Transactional(readOnly = true)
+    public void forEachDirectoryUser(Consumer<User> action) {
+        String sql = "SELECT " + USER_COLUMNS + " FROM users WHERE is_teacher = TRUE OR (is_student = TRUE AND is_public = TRUE) ORDER BY id ASC";
+        template.query(streamingStatement(sql), (RowCallbackHandler) rs -> action.accept(USER_ROW_MAPPER.mapRow(rs, 0)));
+    }
+
+    // The returned stream holds an open connection until closed; always use try-with-resources.
+    // For PostgreSQL the caller must be inside a transaction for rows to be fetched incrementally.
+    public Stream<User> streamUsers() {
+        String sql = "SELECT " + USER_COLUMNS + " FROM users ORDER BY id ASC";
+        return template.queryForStream(streamingStatement(sql), USER_ROW_MAPPER);
+    }
+
+    private static PreparedStatementCreator streamingStatement(String sql, Object... args) {
+        return con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i + 1, args[i]);
+            }
+            return ps;
+        };
+    }
+
+    // Summary variants select only what directory and messaging views render; no password hashes or emails.
+    @ReplicaRead
+    public List<UserSummary> getTeacherSummaries() {
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM users WHERE is_teacher = TRUE ORDER BY last_name ASC, first_name ASC";
+
+        return template.query(sql, SUMMARY_ROW_MAPPER);
+    }
+
+    @ReplicaRead
+    public List<UserSummary> getPublicStudentSummaries() {
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM users WHERE is_student = TRUE AND is_public = TRUE ORDER BY last_name ASC, first_name ASC";
+
+        return template.query(sql, SUMMARY_ROW_MAPPER);
+    }
+
+    @ReplicaRead
+    public UserPage getTeacherSummaryPage(String cursor, int pageSize) {
+        return querySummaryPage("is_teacher = TRUE", cursor, pageSize);
+    }
+
+    @ReplicaRead
+    public UserPage getPublicStudentSummaryPage(String cursor, int pageSize) {
+        return querySummaryPage("is_student = TRUE AND is_public = TRUE", cursor, pageSize);
+    }
+
+    // Keyset pagination on DIRECTORY_SORT_KEY: every page is an index range seek, however deep.
+    // One extra row is fetched to know whether a next page exists.
+    private UserPage querySummaryPage(String filter, String cursor, int pageSize, Object... filterArgs) {
+        int limit = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+        List<Object> args = new ArrayList<>(Arrays.asList(filterArgs));
+        StringBuilder sql = new StringBuilder("SELECT " + SUMMARY_COLUMNS + " FROM users WHERE " + filter);
+
+        if (cursor != null && !cursor.isEmpty()) {
+            UserSummary after = decodeCursor(cursor);
+            sql.append(" AND (" + DIRECTORY_SORT_KEY + ") > (?, ?, ?)");
+            args.add(after.lastName());
+            args.add(after.firstName());
+            args.add(after.id());
+        }
+        sql.append(" ORDER BY " + DIRECTORY_SORT_KEY + " LIMIT ?");
+        args.add(limit + 1);
+
+        List<UserSummary> rows = template.query(sql.toString(), SUMMARY_ROW_MAPPER, args.toArray());
+        if (rows.size() <= limit) {
+            return new UserPage(rows, null);
+        }
+
+        List<UserSummary> page = rows.subList(0, limit);
+        return new UserPage(new ArrayList<>(page), encodeCursor(page.get(limit - 1)));
+    }
+
+    // NULL names are encoded as "", which is what DIRECTORY_SORT_KEY compares them as.
+    private static String encodeCursor(UserSummary last) {
+        String raw = nullToEmpty(last.lastName()) + CURSOR_SEPARATOR + nullToEmpty(last.firstName()) + CURSOR_SEPARATOR + last.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static UserSummary decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(String.valueOf(CURSOR_SEPARATOR), -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Malformed directory cursor");
+            }
+            return new UserSummary(Integer.parseInt(parts[2]), parts[1], parts[0]);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Rejected directory cursor: " + e.getLocalizedMessage());
+            throw new IllegalArgumentException("Invalid directory cursor", e);
+        }
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+
+    public List<UserSummary> getTeacherSummariesForMessaging(int studentId) {
+        if (studentTeacherIndex.isLoaded()) {
+            List<Integer> teacherIds = new ArrayList<>();
+            for (int teacherId : studentTeacherIndex.teachersOf(studentId)) {
+                teacherIds.add(teacherId);
+            }
+            List<UserSummary> teachers = getUserSummariesByIds(teacherIds);
+            // Same order as the SQL fallback, where NULL names sort last.
+            teachers.sort(Comparator.comparing(UserSummary::lastName, Comparator.nullsLast(Comparator.<String>naturalOrder()))
+                    .thenComparing(UserSummary::firstName, Comparator.nullsLast(Comparator.<String>naturalOrder())));
+            return teachers;
+        }
+
+        String sql = "SELECT teachers.id, teachers.first_name, teachers.last_name " +
+                " FROM enrollments " +
+                " INNER JOIN courses ON enrollments.course_id = courses.id " +
+                " INNER JOIN users AS teachers ON courses.owner_id = teachers.id " +
+                " WHERE enrollments.student_id = ? " +
+                " GROUP BY teachers.id, teachers.first_name, teachers.last_name " +
+                " ORDER BY teachers.last_name ASC, teachers.first_name ASC";
+
+        return template.query(sql, SUMMARY_ROW_MAPPER, studentId);
+    }
+
+    // Summary counterpart of getUsersByIds: SUMMARY_COLUMNS only, one query per IN_LIST_CHUNK_SIZE ids.
+    // Not served from UserCache, whose entries are full rows.
+    private List<UserSummary> getUserSummariesByIds(Collection<Integer> ids) {
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<UserSummary> summaries = new ArrayList<>(distinct.size());
+        for (int from = 0; from < distinct.size(); from += IN_LIST_CHUNK_SIZE) {
+            List<Integer> chunk = distinct.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, distinct.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            String sql = "SELECT " + SUMMARY_COLUMNS + " FROM users WHERE id IN (" + placeholders + ")";
+            summaries.addAll(template.query(sql, SUMMARY_ROW_MAPPER, chunk.toArray()));
+        }
+        return summaries;
+    }
+
+    // Students a teacher may message: those enrolled in at least one of the teacher's courses.
+    // Served in keyset pages so a large roster is never held in memory at once.
+    @ReplicaRead
+    public UserPage getStudentSummaryPageForMessaging(int teacherId, String cursor, int pageSize) {
+        return querySummaryPage("is_student = TRUE AND " + ROSTER_FILTER, cursor, pageSize, teacherId);
+    }
+
     public void insertNewUser(User u) throws DuplicateKeyException {
         String sql = "INSERT INTO users(first_name, last_name, email_address, username, password, is_teacher, is_student, is_public) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
 
         try {
             template.update(sql, u.getFirstName(), u.getLastName(), u.getEmail(), u.getUsername(), u.getPassword(), u.isTeacher(), u.isStudent(), u.isPublic());
+            userCache.invalidate(u);
+            eventPublisher.publishEvent(new UserChangedEvent(0, u.getUsername()));
         } catch (DuplicateKeyException e) {
             logger.error("Duplicate key inserting new user to database: " + e.getLocalizedMessage());
             throw e;
@@ -111,42 +387,93 @@ public class UserRepository {
         String sql = "UPDATE users SET password = ?, email_address = ? WHERE id = ?";
         try {
             template.update(sql, u.getPassword(), u.getEmail(), u.getId());
+            userCache.invalidate(u);
+            eventPublisher.publishEvent(new UserChangedEvent(u.getId(), u.getUsername()));
         } catch(Exception e) {
             logger.error("Error updating user in database: " + e.getLocalizedMessage());
             throw e;
         }
     }
 
-    private class UserRowMapper implements RowMapper<User> {
+    // Keyset batch of ids, for background jobs that must release their connection between batches.
+    public List<Integer> getUserIdsAfterId(int afterId, int limit) {
+        String sql = "SELECT id FROM users WHERE id > ? ORDER BY id ASC LIMIT ?";
+        return template.queryForList(sql, Integer.class, afterId, limit);
+    }
+
+    // Flags users in (afterId, upToId] whose bcrypt cost is below minCost. The cost is compared in SQL
+    // ("$2a$10$..." -> "10", zero-padded so string order is numeric order), so no hash leaves the database.
+    public int flagPasswordRehash(int afterId, int upToId, int minCost) {
+        String sql = "UPDATE users SET password_rehash_required = TRUE " +
+                " WHERE id > ? AND id <= ? AND password_rehash_required = FALSE " +
+                " AND password LIKE '$2_$__$%' AND SUBSTRING(password, 5, 2) < ?";
+        try {
+            return template.update(sql, afterId, upToId, String.format("%02d", minCost));
+        } catch(Exception e) {
+            logger.error("Error flagging users for password rehash: " + e.getLocalizedMessage());
+            throw e;
+        }
+    }
+
+    public boolean isPasswordRehashRequired(int id) {
+        String sql = "SELECT password_rehash_required FROM users WHERE id = ?";
+        List<Boolean> flags = template.queryForList(sql, Boolean.class, id);
+        return !flags.isEmpty() && Boolean.TRUE.equals(flags.get(0));
+    }
+
+    // Replaces the hash only if it is still the one the upgrade was computed from, and clears the flag.
+    // A stronger hash of the same password changes nothing the directory or search indexes read, so
+    // no UserChangedEvent is published.
+    public boolean upgradePasswordHash(User u, String oldHash, String newHash) {
+        String sql = "UPDATE users SET password = ?, password_rehash_required = FALSE WHERE id = ? AND password = ?";
+        try {
+            int updated = template.update(sql, newHash, u.getId(), oldHash);
+            userCache.invalidate(u);
+            return updated == 1;
+        } catch(Exception e) {
+            logger.error("Error upgrading password hash: " + e.getLocalizedMessage());
+            throw e;
+        }
+    }
+
+    private static final class UserRowMapper implements RowMapper<User> {
 
         @Override
         public User mapRow(ResultSet rs, int rowNum) throws SQLException {
             User u = new User();
 
-            u.setId(rs.getInt("id"));
-            u.setFirstName(rs.getString("first_name"));
-            u.setLastName(rs.getString("last_name"));
-            u.setEmail(rs.getString("email_address"));
-            u.setUsername(rs.getString("username"));;
-            u.setPassword(rs.getString("password"));
-            u.setTeacher(rs.getBoolean("is_teacher"));
-            u.setStudent(rs.getBoolean("is_student"));
-            u.setPublic(rs.getBoolean("is_public"));
+            u.setId(rs.getInt(1));
+            u.setFirstName(rs.getString(2));
+            u.setLastName(rs.getString(3));
+            u.setEmail(rs.getString(4));
+            u.setUsername(rs.getString(5));
+            u.setPassword(rs.getString(6));
+            u.setTeacher(rs.getBoolean(7));
+            u.setStudent(rs.getBoolean(8));
+            u.setPublic(rs.getBoolean(9));
 
             return u;
         }
 
     }
 
-    // Placeholder for the method you mentioned. You'll need to implement the correct SQL.
-    // Based on your description, it should likely involve selecting students based on some criteria.
-    // The below is just a guess and needs to be replaced with the actual logic.
-    public List<User> getAvailableStudentsForMessaging(int userId) {
-        String sql = "SELECT id, first_name, last_name, email_address, username, password, is_teacher, is_student, is_public " +
+    private static final class UserSummaryRowMapper implements RowMapper<UserSummary> {
+
+        @Override
+        public UserSummary mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new UserSummary(rs.getInt(1), rs.getString(2), rs.getString(3));
+        }
+
+    }
+
+    @ReplicaRead
+    public List<User> getAvailableStudentsForMessaging(int teacherId) {
+        String sql = "SELECT " + USER_COLUMNS + " " +
                      "FROM users " +
-                     "WHERE is_student = TRUE AND id != ?";
+                     "WHERE is_student = TRUE AND " + ROSTER_FILTER +
+                     " ORDER BY last_name ASC, first_name ASC";
         try {
-            return template.query(sql, new UserRowMapper(), userId);
+            return template.query(sql, USER_ROW_MAPPER, teacherId);
         } catch (EmptyResultDataAccessException e) {
             logger.debug("getAvailableStudentsForMessaging() returned empty results");
         }
@@ -0,0 +1,38 @@
+package com.offsec.ssd.elearn.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.offsec.ssd.elearn.model.UserSummary;
+import com.offsec.ssd.elearn.search.UserDirectoryIndex;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+
+@RestController
+public class UserSearchController {
+
+    @Autowired
+    private UserDirectoryIndex userDirectoryIndex;
+
+    @GetMapping("/directory/search")
+    public ResponseEntity<List<UserSummary>> search(HttpServletRequest req,
+                                                    @RequestParam("q") String query,
+                                                    @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        HttpSession session = req.getSession(false);
+        if (session == null || !Boolean.TRUE.equals(session.getAttribute("authenticated"))) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (query.length() > 64) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(userDirectoryIndex.search(query, limit));
+    }
+}
@@ -0,0 +1,5 @@
+package com.offsec.ssd.elearn.model;
+
+// Directory/messaging projection of a user: just enough to render a name and link to the profile.
+public record UserSummary(int id, String firstName, String lastName) {
+}
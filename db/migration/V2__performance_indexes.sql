@@ -0,0 +1,20 @@
+-- Flyway migrations, picked up from classpath:db/migration.
+-- Version 1 is the schema that predates migrations. It has no file here; existing databases are
+-- baselined at it through the settings in application.properties. Username lookups (login) already
+-- use the index behind the unique constraint that makes insertNewUser raise DuplicateKeyException,
+-- so none is added for them here.
+
+-- Teacher directory: getAllTeachers, getTeacherSummaries, getTeacherSummaryPage (keyset on last_name, first_name, id)
+CREATE INDEX idx_users_teacher_name ON users (is_teacher, last_name, first_name, id);
+
+-- Public student directory: getPublicStudents, getPublicStudentSummaries, getPublicStudentSummaryPage
+CREATE INDEX idx_users_public_student_name ON users (is_student, is_public, last_name, first_name, id);
+
+-- Messaging: a student's courses (getTeacherSummariesForMessaging, roster EXISTS probe by student_id)
+CREATE INDEX idx_enrollments_student_course ON enrollments (student_id, course_id);
+
+-- Roster lookups and the StudentTeacherIndex reload walk enrollments by course
+CREATE INDEX idx_enrollments_course_student ON enrollments (course_id, student_id);
+
+-- CourseRepository.getCoursesByOwnerId / getAllActiveCoursesByOwnerId and roster ownership checks
+CREATE INDEX idx_courses_owner ON courses (owner_id, id);
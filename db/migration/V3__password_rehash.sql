@@ -0,0 +1,10 @@
+-- Accounts whose bcrypt cost is below the one CryptoUtil hashes with; set by PasswordRehashJob and
+-- cleared once the hash is upgraded at login.
+ALTER TABLE users ADD COLUMN password_rehash_required BOOLEAN NOT NULL DEFAULT FALSE;
+
+-- Resume points for long-running background jobs (e.g. PasswordRehashJob).
+CREATE TABLE job_checkpoints (
+    job_name VARCHAR(64) NOT NULL PRIMARY KEY,
+    last_id INT NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
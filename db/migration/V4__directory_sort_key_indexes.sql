@@ -0,0 +1,9 @@
+-- Keyset directory pages (UserRepository.querySummaryPage) sort and seek on
+-- (COALESCE(last_name, ''), COALESCE(first_name, ''), id) so NULL names page correctly. These replace
+-- the plain-column indexes from V2 for those queries; the unpaged list methods still use V2's.
+
+-- getTeacherSummaryPage
+CREATE INDEX idx_users_teacher_sort_key ON users (is_teacher, (COALESCE(last_name, '')), (COALESCE(first_name, '')), id);
+
+-- getPublicStudentSummaryPage
+CREATE INDEX idx_users_public_student_sort_key ON users (is_student, is_public, (COALESCE(last_name, '')), (COALESCE(first_name, '')), id);